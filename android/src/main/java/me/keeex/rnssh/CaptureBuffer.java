@@ -0,0 +1,49 @@
+package me.dylankenneally.rnssh;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable byte buffer that stops accepting data past a maximum size and
+ * remembers that output was dropped.
+ */
+class CaptureBuffer extends ByteArrayOutputStream {
+  static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private final int limit;
+  private boolean truncated = false;
+
+  CaptureBuffer(int limit) {
+    super(Math.min(limit, 8192));
+    this.limit = limit;
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    if (count >= limit) {
+      truncated = true;
+      return;
+    }
+    super.write(b);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    int room = limit - count;
+    if (len > room) {
+      truncated = true;
+      len = Math.max(room, 0);
+    }
+    if (len > 0) {
+      super.write(b, off, len);
+    }
+  }
+
+  synchronized boolean isTruncated() {
+    return truncated;
+  }
+
+  synchronized String toUtf8String() {
+    return new String(buf, 0, count, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,82 @@
+package me.dylankenneally.rnssh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Extended data (stderr) stream of an exec channel that tells when the channel
+ * has closed, so that nothing has to poll Channel.isClosed().
+ *
+ * JSch closes the extended output stream of a channel, unless told not to,
+ * when the channel disconnects: on the server's close message, which follows
+ * the exit status, when the session drops, or when it is disconnected
+ * locally. Output is forwarded to the target stream, which is only flushed on
+ * close; its owner closes it. The optional onClose task runs once, on the
+ * thread that closed the channel.
+ */
+class ChannelCloseSignal extends OutputStream {
+  private final OutputStream target;
+  private final Runnable onClose;
+  private final CountDownLatch closed = new CountDownLatch(1);
+  private boolean closing = false;
+
+  ChannelCloseSignal(OutputStream target) {
+    this(target, null);
+  }
+
+  ChannelCloseSignal(OutputStream target, Runnable onClose) {
+    this.target = target;
+    this.onClose = onClose;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (target != null) {
+      target.write(b);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (target != null) {
+      target.write(b, off, len);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (target != null) {
+      target.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closing) {
+        return;
+      }
+      closing = true;
+    }
+    try {
+      flush();
+    } finally {
+      closed.countDown();
+      if (onClose != null) {
+        onClose.run();
+      }
+    }
+  }
+
+  boolean isClosed() {
+    return closed.getCount() == 0;
+  }
+
+  /**
+   * Blocks until the channel has closed.
+   */
+  void await() throws InterruptedException {
+    closed.await();
+  }
+}
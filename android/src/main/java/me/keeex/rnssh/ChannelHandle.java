@@ -0,0 +1,35 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.Channel;
+
+/**
+ * A shell or exec channel opened on the session of a client, identified by an
+ * id that is unique within the client. Output is sent to JavaScript tagged
+ * with that id; input goes through the writer.
+ */
+class ChannelHandle {
+  final String id;
+  final String type;
+  final Channel channel;
+  final ShellWriter writer;
+  ShellReader reader = null;
+
+  ChannelHandle(String id, String type, Channel channel, ShellWriter writer) {
+    this.id = id;
+    this.type = type;
+    this.channel = channel;
+    this.writer = writer;
+  }
+
+  /**
+   * Sends pending input, then closes the channel. The reader ends when the
+   * channel input stream closes.
+   */
+  void close() {
+    writer.close();
+    channel.disconnect();
+    if (reader != null) {
+      reader.stop();
+    }
+  }
+}
@@ -0,0 +1,343 @@
+package me.dylankenneally.rnssh;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import com.jcraft.jsch.SftpProgressMonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mirrors a directory tree between the device and the server in one direction.
+ *
+ * Both trees are walked first. A file is sent when it is missing on the other
+ * side, or when its size or modification time (to the second) differ; with
+ * checksums enabled, files of equal size are compared by SHA-256 instead of
+ * mtime. Missing directories are created, then the files are transferred by a
+ * pool of workers with one SFTP channel each. The mtime of every file sent is
+ * copied to the destination so that the next sync skips it. Nothing is
+ * deleted on the destination, and symbolic links are skipped.
+ */
+class DirectorySync {
+  static final int DEFAULT_WORKERS = 4;
+  static final int MAX_WORKERS = 8;
+
+  /**
+   * Computes the SHA-256 of remote files, keyed by path. Files it cannot hash
+   * are left out of the result.
+   */
+  interface RemoteHasher {
+    Map<String, String> sha256(List<String> paths) throws Exception;
+  }
+
+  /**
+   * Creates the progress of the transfer phase once its size is known.
+   */
+  interface ProgressFactory {
+    TransferProgress create(long total);
+  }
+
+  static class Summary {
+    int filesScanned;
+    int filesSent;
+    int filesSkipped;
+    int directoriesCreated;
+    long bytesSent;
+    long bytesSkipped;
+  }
+
+  private static class Candidate {
+    final String path;
+    final long size;
+    final long mtime;
+
+    Candidate(String path, long size, long mtime) {
+      this.path = path;
+      this.size = size;
+      this.mtime = mtime;
+    }
+  }
+
+  private final Session session;
+  private final SshExecutor executor;
+  private final File localRoot;
+  private final String remoteRoot;
+  private final boolean upload;
+  int workers = DEFAULT_WORKERS;
+  RemoteHasher hasher = null;
+
+  DirectorySync(Session session, SshExecutor executor, File localRoot, String remoteRoot, boolean upload) {
+    this.session = session;
+    this.executor = executor;
+    this.localRoot = localRoot;
+    this.remoteRoot = remoteRoot.endsWith("/") && remoteRoot.length() > 1
+      ? remoteRoot.substring(0, remoteRoot.length() - 1) : remoteRoot;
+    this.upload = upload;
+  }
+
+  /**
+   * Walks both trees, works out what has to be sent and sends it. Progress is
+   * reported against the bytes to send.
+   */
+  Summary run(ProgressFactory progressFactory) throws Exception {
+    final Summary summary = new Summary();
+    final List<Candidate> toSend = new ArrayList<>();
+    final List<ChannelSftp> opened = Collections.synchronizedList(new ArrayList<ChannelSftp>());
+    try {
+      ChannelSftp control = openChannel(opened);
+      Map<String, Candidate> localFiles = new TreeMap<>();
+      TreeSet<String> localDirs = new TreeSet<>();
+      walkLocal(localFiles, localDirs);
+      Map<String, Candidate> remoteFiles = new TreeMap<>();
+      TreeSet<String> remoteDirs = new TreeSet<>();
+      walkRemote(control, remoteFiles, remoteDirs);
+
+      Map<String, Candidate> sources = upload ? localFiles : remoteFiles;
+      Map<String, Candidate> targets = upload ? remoteFiles : localFiles;
+      List<Candidate> sameSize = new ArrayList<>();
+      for (Candidate source : sources.values()) {
+        summary.filesScanned++;
+        Candidate target = targets.get(source.path);
+        if (target == null || target.size != source.size) {
+          toSend.add(source);
+        } else if (hasher != null) {
+          sameSize.add(source);
+        } else if (target.mtime != source.mtime) {
+          toSend.add(source);
+        } else {
+          skip(summary, source);
+        }
+      }
+      if (!sameSize.isEmpty()) {
+        compareHashes(sameSize, toSend, summary);
+      }
+
+      if (!upload && !localRoot.isDirectory() && !localRoot.mkdirs()) {
+        throw new IOException("Cannot create " + localRoot.getPath());
+      }
+      TreeSet<String> missingDirs = new TreeSet<>(upload ? localDirs : remoteDirs);
+      missingDirs.removeAll(upload ? remoteDirs : localDirs);
+      for (String dir : missingDirs) {
+        if (upload) {
+          control.mkdir(remotePath(dir));
+        } else if (!localFile(dir).mkdirs() && !localFile(dir).isDirectory()) {
+          throw new IOException("Cannot create " + localFile(dir).getPath());
+        }
+        summary.directoriesCreated++;
+      }
+
+      long total = 0;
+      for (Candidate candidate : toSend) {
+        total += candidate.size;
+      }
+      final TransferProgress progress = progressFactory.create(total);
+      final SftpProgressMonitor monitor = new SftpProgressMonitor() {
+        public void init(int op, String src, String dest, long max) {
+        }
+
+        public boolean count(long bytes) {
+          return progress.add(bytes);
+        }
+
+        public void end() {
+        }
+      };
+
+      final AtomicInteger next = new AtomicInteger(0);
+      final AtomicInteger sent = new AtomicInteger(0);
+      final AtomicLong bytesSent = new AtomicLong(0);
+      int count = Math.max(1, Math.min(Math.min(MAX_WORKERS, workers), toSend.size()));
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < count && !toSend.isEmpty(); i++) {
+        futures.add(executor.startStream(new Callable<Void>() {
+          public Void call() throws Exception {
+            ChannelSftp channel = openChannel(opened);
+            int index;
+            while ((index = next.getAndIncrement()) < toSend.size()) {
+              if (progress.isCancelled()) {
+                throw new InterruptedException("Sync cancelled");
+              }
+              Candidate file = toSend.get(index);
+              transfer(channel, file, monitor);
+              if (progress.isCancelled()) {
+                throw new InterruptedException("Sync cancelled");
+              }
+              sent.incrementAndGet();
+              bytesSent.addAndGet(file.size);
+            }
+            return null;
+          }
+        }));
+      }
+      try {
+        ParallelDownload.awaitAll(futures, new Runnable() {
+          public void run() {
+            next.set(toSend.size());
+          }
+        });
+      } finally {
+        summary.filesSent = sent.get();
+        summary.bytesSent = bytesSent.get();
+      }
+      progress.finish();
+      return summary;
+    } finally {
+      synchronized (opened) {
+        for (ChannelSftp channel : opened) {
+          channel.disconnect();
+        }
+      }
+    }
+  }
+
+  private void transfer(ChannelSftp channel, Candidate file, SftpProgressMonitor monitor)
+      throws SftpException, IOException {
+    File local = localFile(file.path);
+    String remote = remotePath(file.path);
+    if (upload) {
+      channel.put(local.getPath(), remote, monitor, ChannelSftp.OVERWRITE);
+      channel.setMtime(remote, (int) file.mtime);
+    } else {
+      channel.get(remote, local.getPath(), monitor, ChannelSftp.OVERWRITE);
+      if (!local.setLastModified(file.mtime * 1000)) {
+        throw new IOException("Cannot set the modification time of " + local.getPath());
+      }
+    }
+  }
+
+  private void compareHashes(List<Candidate> sameSize, List<Candidate> toSend, Summary summary) throws Exception {
+    List<String> remotePaths = new ArrayList<>(sameSize.size());
+    for (Candidate candidate : sameSize) {
+      remotePaths.add(remotePath(candidate.path));
+    }
+    Map<String, String> remoteHashes = hasher.sha256(remotePaths);
+    for (Candidate candidate : sameSize) {
+      String remoteHash = remoteHashes.get(remotePath(candidate.path));
+      String localHash = ParallelDownload.sha256(localFile(candidate.path));
+      if (remoteHash != null && remoteHash.equalsIgnoreCase(localHash)) {
+        skip(summary, candidate);
+      } else {
+        toSend.add(candidate);
+      }
+    }
+  }
+
+  private static void skip(Summary summary, Candidate candidate) {
+    summary.filesSkipped++;
+    summary.bytesSkipped += candidate.size;
+  }
+
+  private void walkLocal(Map<String, Candidate> files, TreeSet<String> dirs) throws IOException {
+    if (!localRoot.isDirectory()) {
+      if (upload) {
+        throw new IOException(localRoot.getPath() + " is not a directory");
+      }
+      return;
+    }
+    ArrayDeque<String> pending = new ArrayDeque<>();
+    pending.add("");
+    while (!pending.isEmpty()) {
+      String dir = pending.poll();
+      File[] children = localFile(dir).listFiles();
+      if (children == null) {
+        continue;
+      }
+      for (File child : children) {
+        String path = dir.isEmpty() ? child.getName() : dir + "/" + child.getName();
+        if (isSymbolicLink(child)) {
+          continue;
+        }
+        if (child.isDirectory()) {
+          dirs.add(path);
+          pending.add(path);
+        } else if (child.isFile()) {
+          files.put(path, new Candidate(path, child.length(), child.lastModified() / 1000));
+        }
+      }
+    }
+  }
+
+  // java.nio.file needs API 26; lstat() works on every supported version. A
+  // file that cannot be examined is left to the isDirectory()/isFile() checks.
+  private static boolean isSymbolicLink(File file) {
+    try {
+      return OsConstants.S_ISLNK(Os.lstat(file.getPath()).st_mode);
+    } catch (ErrnoException error) {
+      return false;
+    }
+  }
+
+  private void walkRemote(ChannelSftp channel, final Map<String, Candidate> files, final TreeSet<String> dirs)
+      throws SftpException {
+    try {
+      if (!channel.stat(remoteRoot).isDir()) {
+        throw new SftpException(ChannelSftp.SSH_FX_FAILURE, remoteRoot + " is not a directory");
+      }
+    } catch (SftpException error) {
+      if (error.id == ChannelSftp.SSH_FX_NO_SUCH_FILE && upload) {
+        channel.mkdir(remoteRoot);
+        return;
+      }
+      throw error;
+    }
+    final ArrayDeque<String> pending = new ArrayDeque<>();
+    pending.add("");
+    while (!pending.isEmpty()) {
+      final String dir = pending.poll();
+      channel.ls(remotePath(dir), new ChannelSftp.LsEntrySelector() {
+        public int select(LsEntry entry) {
+          String name = entry.getFilename();
+          if (name.equals(".") || name.equals("..")) {
+            return CONTINUE;
+          }
+          String path = dir.isEmpty() ? name : dir + "/" + name;
+          SftpATTRS attrs = entry.getAttrs();
+          if (attrs.isDir()) {
+            dirs.add(path);
+            pending.add(path);
+          } else if (attrs.isReg()) {
+            files.put(path, new Candidate(path, attrs.getSize(), attrs.getMTime() & 0xffffffffL));
+          }
+          return CONTINUE;
+        }
+      });
+    }
+  }
+
+  private File localFile(String path) {
+    return path.isEmpty() ? localRoot : new File(localRoot, path);
+  }
+
+  private String remotePath(String path) {
+    if (path.isEmpty()) {
+      return remoteRoot;
+    }
+    return remoteRoot.equals("/") ? "/" + path : remoteRoot + "/" + path;
+  }
+
+  private ChannelSftp openChannel(List<ChannelSftp> opened) throws JSchException {
+    ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+    opened.add(channel);
+    channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+    return channel;
+  }
+}
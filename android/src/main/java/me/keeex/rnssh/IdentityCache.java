@@ -0,0 +1,280 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.Identity;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Private keys already parsed and decrypted, so that connecting again with
+ * the same key does not pay for the passphrase KDF again.
+ *
+ * Entries are identified by a salted digest of the private key, public key
+ * and passphrase: a key given with another passphrase is a miss and has to
+ * decrypt. Each entry expires ttlMs after it was loaded, whether or not it is
+ * used, and at most maxEntries are kept, least recently used evicted first.
+ *
+ * get() pins the key it returns until release() is called, once the session
+ * has authenticated or failed to. An evicted key is disposed once it is no
+ * longer pinned; sessions already authenticated with it are not affected.
+ * KeyPair.dispose() only clears part of the private key (RSA keys keep their
+ * CRT parameters), so this drops the references to the key rather than
+ * wiping it from memory.
+ */
+class IdentityCache {
+  static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+  static final int DEFAULT_MAX_ENTRIES = 16;
+
+  private static class Cached {
+    final CachedIdentity identity;
+    final long expires;
+
+    Cached(CachedIdentity identity, long expires) {
+      this.identity = identity;
+      this.expires = expires;
+    }
+  }
+
+  static class Stats {
+    long hits;
+    long misses;
+    long evictions;
+    int entries;
+  }
+
+  private final SshExecutor executor;
+  private final JSch jsch;
+  private final byte[] salt = new byte[16];
+  private final Map<String, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean enabled = true;
+  private long ttlMs = DEFAULT_TTL_MS;
+  private int maxEntries = DEFAULT_MAX_ENTRIES;
+  private ScheduledFuture<?> purge = null;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  IdentityCache(SshExecutor executor, JSch jsch) {
+    this.executor = executor;
+    this.jsch = jsch;
+    new SecureRandom().nextBytes(salt);
+  }
+
+  synchronized void configure(boolean enabled, long ttlMs, int maxEntries) {
+    this.enabled = enabled;
+    this.ttlMs = Math.max(0, ttlMs);
+    this.maxEntries = Math.max(1, maxEntries);
+    if (!enabled) {
+      clear();
+    } else {
+      trim();
+    }
+  }
+
+  /**
+   * Returns a decrypted identity for the key, from the cache or freshly
+   * loaded, pinned until it is released. Throws if the key cannot be parsed or
+   * the passphrase is wrong.
+   */
+  Identity get(byte[] privateKey, byte[] publicKey, byte[] passphrase) throws JSchException {
+    String id = fingerprint(privateKey, publicKey, passphrase);
+    synchronized (this) {
+      Cached cached = entries.get(id);
+      if (cached != null && cached.expires > System.nanoTime()) {
+        hits++;
+        cached.identity.pins++;
+        return cached.identity;
+      }
+      misses++;
+    }
+    // Decrypt outside the lock: it is the slow part.
+    CachedIdentity identity = new CachedIdentity(load(privateKey, publicKey, passphrase));
+    synchronized (this) {
+      identity.pins++;
+      if (!enabled || ttlMs == 0) {
+        // Not cached: disposed as soon as it is released.
+        identity.evicted = true;
+        return identity;
+      }
+      Cached previous = entries.put(id, new Cached(identity, System.nanoTime() + ttlMs * 1000000));
+      if (previous != null) {
+        evict(previous.identity);
+      }
+      trim();
+      if (purge == null) {
+        schedulePurge();
+      }
+    }
+    return identity;
+  }
+
+  /**
+   * Unpins an identity returned by get(), once the session using it has
+   * authenticated or failed to. Identities that did not come from the cache
+   * are ignored.
+   */
+  synchronized void release(Identity identity) {
+    if (!(identity instanceof CachedIdentity)) {
+      return;
+    }
+    CachedIdentity cached = (CachedIdentity) identity;
+    if (--cached.pins == 0 && cached.evicted) {
+      cached.keyPair.dispose();
+    }
+  }
+
+  /**
+   * Evicts every cached key. Keys still pinned are disposed when released.
+   */
+  synchronized void clear() {
+    for (Cached cached : entries.values()) {
+      evict(cached.identity);
+    }
+    evictions += entries.size();
+    entries.clear();
+    if (purge != null) {
+      purge.cancel(false);
+      purge = null;
+    }
+  }
+
+  synchronized Stats getStats() {
+    Stats stats = new Stats();
+    stats.hits = hits;
+    stats.misses = misses;
+    stats.evictions = evictions;
+    stats.entries = entries.size();
+    return stats;
+  }
+
+  private KeyPair load(byte[] privateKey, byte[] publicKey, byte[] passphrase) throws JSchException {
+    KeyPair keyPair = KeyPair.load(jsch, privateKey, publicKey);
+    if (keyPair.isEncrypted() && (passphrase == null || !keyPair.decrypt(passphrase))) {
+      keyPair.dispose();
+      throw new JSchException(passphrase == null ? "Passphrase required" : "Invalid passphrase");
+    }
+    return keyPair;
+  }
+
+  private String fingerprint(byte[] privateKey, byte[] publicKey, byte[] passphrase) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(salt);
+      for (byte[] part : new byte[][] { privateKey, publicKey, passphrase }) {
+        digest.update((byte) 0);
+        if (part != null) {
+          digest.update(part);
+        }
+      }
+      return SshLog.hex(digest.digest());
+    } catch (NoSuchAlgorithmException error) {
+      throw new IllegalStateException(error);
+    }
+  }
+
+  // Evicts expired entries, then the least recently used ones over the limit.
+  private void trim() {
+    long now = System.nanoTime();
+    Iterator<Cached> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Cached cached = iterator.next();
+      if (cached.expires <= now || entries.size() > maxEntries) {
+        evict(cached.identity);
+        iterator.remove();
+        evictions++;
+      }
+    }
+  }
+
+  // Must hold the lock.
+  private void evict(CachedIdentity identity) {
+    identity.evicted = true;
+    if (identity.pins == 0) {
+      identity.keyPair.dispose();
+    }
+  }
+
+  private void schedulePurge() {
+    purge = executor.schedule(new Runnable() {
+      public void run() {
+        synchronized (IdentityCache.this) {
+          purge = null;
+          trim();
+          if (!entries.isEmpty()) {
+            schedulePurge();
+          }
+        }
+      }
+    }, Math.max(1000, ttlMs));
+  }
+
+  /**
+   * An identity backed by a decrypted key pair shared between sessions.
+   * clear() is called by JSch when a session lets go of it, so it leaves the
+   * key alone; the cache disposes it once it is evicted and unpinned.
+   */
+  private static class CachedIdentity implements Identity {
+    private final KeyPair keyPair;
+    private final String algName;
+    // Guarded by the cache lock.
+    int pins = 0;
+    boolean evicted = false;
+
+    CachedIdentity(KeyPair keyPair) {
+      this.keyPair = keyPair;
+      this.algName = algorithm(keyPair.getPublicKeyBlob());
+    }
+
+    public boolean setPassphrase(byte[] passphrase) {
+      return true;
+    }
+
+    public byte[] getPublicKeyBlob() {
+      return keyPair.getPublicKeyBlob();
+    }
+
+    public byte[] getSignature(byte[] data) {
+      return keyPair.getSignature(data);
+    }
+
+    public byte[] getSignature(byte[] data, String alg) {
+      return keyPair.getSignature(data, alg);
+    }
+
+    public String getAlgName() {
+      return algName;
+    }
+
+    public String getName() {
+      return "default";
+    }
+
+    public boolean isEncrypted() {
+      return false;
+    }
+
+    public void clear() {
+    }
+
+    // The key type name that starts the public key blob.
+    private static String algorithm(byte[] blob) {
+      if (blob == null || blob.length < 4) {
+        return null;
+      }
+      int length = ((blob[0] & 0xff) << 24) | ((blob[1] & 0xff) << 16) | ((blob[2] & 0xff) << 8) | (blob[3] & 0xff);
+      if (length <= 0 || length > blob.length - 4) {
+        return null;
+      }
+      return new String(blob, 4, length, StandardCharsets.UTF_8);
+    }
+  }
+}
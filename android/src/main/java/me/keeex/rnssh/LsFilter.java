@@ -0,0 +1,105 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.SftpATTRS;
+
+import java.util.regex.Pattern;
+
+/**
+ * Selects directory entries before they are converted and sent to JavaScript.
+ *
+ * Entries can be matched on a glob over the file name (*, ? and [...] classes),
+ * on their type and on a modification time range in epoch seconds. Unset
+ * criteria match everything.
+ */
+class LsFilter {
+  static final String TYPE_FILE = "file";
+  static final String TYPE_DIRECTORY = "directory";
+  static final String TYPE_LINK = "link";
+
+  private Pattern glob = null;
+  private String type = null;
+  private long modifiedAfter = Long.MIN_VALUE;
+  private long modifiedBefore = Long.MAX_VALUE;
+
+  LsFilter glob(String pattern) {
+    glob = pattern == null ? null : Pattern.compile(globToRegex(pattern), Pattern.DOTALL);
+    return this;
+  }
+
+  LsFilter type(String type) {
+    if (type != null && !type.equals(TYPE_FILE) && !type.equals(TYPE_DIRECTORY) && !type.equals(TYPE_LINK)) {
+      throw new IllegalArgumentException("Unknown entry type " + type);
+    }
+    this.type = type;
+    return this;
+  }
+
+  /**
+   * Keeps entries modified at or after the first bound and strictly before the
+   * second one.
+   */
+  LsFilter modified(long after, long before) {
+    modifiedAfter = after;
+    modifiedBefore = before;
+    return this;
+  }
+
+  boolean matches(String filename, SftpATTRS attrs) {
+    if (type != null) {
+      boolean matchesType;
+      if (type.equals(TYPE_DIRECTORY)) {
+        matchesType = attrs.isDir();
+      } else if (type.equals(TYPE_LINK)) {
+        matchesType = attrs.isLink();
+      } else {
+        matchesType = attrs.isReg();
+      }
+      if (!matchesType) {
+        return false;
+      }
+    }
+    long mtime = attrs.getMTime() & 0xffffffffL;
+    if (mtime < modifiedAfter || mtime >= modifiedBefore) {
+      return false;
+    }
+    return glob == null || glob.matcher(filename).matches();
+  }
+
+  static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder(glob.length() + 8);
+    int i = 0;
+    while (i < glob.length()) {
+      char c = glob.charAt(i++);
+      if (c == '*') {
+        regex.append(".*");
+      } else if (c == '?') {
+        regex.append('.');
+      } else if (c == '[') {
+        boolean negated = i < glob.length() && glob.charAt(i) == '!';
+        int start = negated ? i + 1 : i;
+        // A ']' right after "[" or "[!" is a member, so a class is never empty.
+        int end = glob.indexOf(']', start + 1);
+        if (end < 0) {
+          regex.append("\\[");
+          continue;
+        }
+        String set = glob.substring(start, end);
+        regex.append(negated ? "[^" : "[");
+        for (int j = 0; j < set.length(); j++) {
+          char s = set.charAt(j);
+          if (s == '\\' || s == '[' || s == ']' || s == '^' || s == '&') {
+            regex.append('\\');
+          }
+          regex.append(s);
+        }
+        regex.append(']');
+        i = end + 1;
+      } else if ("\\.^$+{}()|]".indexOf(c) >= 0) {
+        regex.append('\\').append(c);
+      } else {
+        regex.append(c);
+      }
+    }
+    return regex.toString();
+  }
+}
@@ -0,0 +1,233 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.SftpATTRS;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-client cache of remote directory listings and file attributes.
+ *
+ * Entries expire after a TTL and the cache holds at most maxEntries directory
+ * entries in total (a listing weighs its number of entries, a stat weighs one),
+ * evicting the least recently used first. Every operation of the client that
+ * changes the remote tree invalidates the affected paths. Keys are absolute,
+ * normalized paths.
+ */
+class MetadataCache {
+  static final long DEFAULT_TTL_MS = 10 * 1000;
+  static final int DEFAULT_MAX_ENTRIES = 20000;
+
+  static class Entry {
+    final String filename;
+    final SftpATTRS attrs;
+
+    Entry(String filename, SftpATTRS attrs) {
+      this.filename = filename;
+      this.attrs = attrs;
+    }
+  }
+
+  private static class Cached {
+    final List<Entry> listing;
+    final SftpATTRS attrs;
+    final long expires;
+
+    Cached(List<Entry> listing, SftpATTRS attrs, long expires) {
+      this.listing = listing;
+      this.attrs = attrs;
+      this.expires = expires;
+    }
+
+    int weight() {
+      return listing != null ? Math.max(1, listing.size()) : 1;
+    }
+  }
+
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final Map<String, Cached> listings = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Cached> stats = new LinkedHashMap<>(16, 0.75f, true);
+  private int weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  MetadataCache(long ttlMs, int maxEntries) {
+    this.ttlNanos = ttlMs * 1000000;
+    this.maxEntries = maxEntries;
+  }
+
+  synchronized List<Entry> getListing(String path) {
+    Cached cached = fresh(listings, path);
+    count(cached != null);
+    return cached == null ? null : cached.listing;
+  }
+
+  /**
+   * Attributes of a path, from its own stat or from a cached listing of its
+   * parent. Listings hold lstat attributes, so symbolic links are only served
+   * from their own stat.
+   */
+  synchronized SftpATTRS getStat(String path) {
+    Cached cached = fresh(stats, path);
+    SftpATTRS attrs = cached != null ? cached.attrs : fromParentListing(path);
+    count(attrs != null);
+    return attrs;
+  }
+
+  synchronized void putListing(String path, List<Entry> listing) {
+    if (listing.size() > maxEntries) {
+      return;
+    }
+    store(listings, path, new Cached(listing, null, System.nanoTime() + ttlNanos));
+  }
+
+  synchronized void putStat(String path, SftpATTRS attrs) {
+    store(stats, path, new Cached(null, attrs, System.nanoTime() + ttlNanos));
+  }
+
+  /**
+   * Forgets a path that was created, changed or removed: its own attributes
+   * and listing, everything below it, and the listing and attributes of its
+   * parent, whose size and modification time change with its entries.
+   */
+  synchronized void invalidate(String path) {
+    String prefix = path.equals("/") ? "/" : path + "/";
+    removeTree(listings, path, prefix);
+    removeTree(stats, path, prefix);
+    String parent = parent(path);
+    if (parent != null) {
+      remove(listings, parent);
+      remove(stats, parent);
+    }
+  }
+
+  synchronized void clear() {
+    listings.clear();
+    stats.clear();
+    weight = 0;
+  }
+
+  synchronized long getHits() {
+    return hits;
+  }
+
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Makes a path absolute against the working directory of the SFTP channel
+   * and resolves "." and ".." components.
+   */
+  static String normalize(String path, String cwd) {
+    String absolute = path.startsWith("/") ? path : cwd + "/" + path;
+    List<String> parts = new ArrayList<>();
+    for (String part : absolute.split("/")) {
+      if (part.isEmpty() || part.equals(".")) {
+        continue;
+      }
+      if (part.equals("..")) {
+        if (!parts.isEmpty()) {
+          parts.remove(parts.size() - 1);
+        }
+      } else {
+        parts.add(part);
+      }
+    }
+    if (parts.isEmpty()) {
+      return "/";
+    }
+    StringBuilder out = new StringBuilder(absolute.length());
+    for (String part : parts) {
+      out.append('/').append(part);
+    }
+    return out.toString();
+  }
+
+  static String parent(String path) {
+    if (path.equals("/")) {
+      return null;
+    }
+    int slash = path.lastIndexOf('/');
+    return slash <= 0 ? "/" : path.substring(0, slash);
+  }
+
+  private Cached fresh(Map<String, Cached> map, String path) {
+    Cached cached = map.get(path);
+    if (cached != null && cached.expires - System.nanoTime() < 0) {
+      map.remove(path);
+      weight -= cached.weight();
+      cached = null;
+    }
+    return cached;
+  }
+
+  private SftpATTRS fromParentListing(String path) {
+    String parent = parent(path);
+    Cached cached = parent == null ? null : fresh(listings, parent);
+    if (cached == null) {
+      return null;
+    }
+    String name = path.substring(path.lastIndexOf('/') + 1);
+    for (Entry entry : cached.listing) {
+      if (entry.filename.equals(name)) {
+        return entry.attrs.isLink() ? null : entry.attrs;
+      }
+    }
+    return null;
+  }
+
+  private void count(boolean hit) {
+    if (hit) {
+      hits++;
+    } else {
+      misses++;
+    }
+  }
+
+  private void store(Map<String, Cached> map, String path, Cached cached) {
+    Cached previous = map.put(path, cached);
+    if (previous != null) {
+      weight -= previous.weight();
+    }
+    weight += cached.weight();
+    while (weight > maxEntries && evictOldest()) {
+      // Keep evicting until the cache fits.
+    }
+  }
+
+  // Evicts the least recently used entry of whichever map has more entries.
+  private boolean evictOldest() {
+    Map<String, Cached> map = listings.isEmpty() ? stats : stats.isEmpty() ? listings
+      : listings.size() >= stats.size() ? listings : stats;
+    Iterator<Cached> values = map.values().iterator();
+    if (!values.hasNext()) {
+      return false;
+    }
+    weight -= values.next().weight();
+    values.remove();
+    return true;
+  }
+
+  private void remove(Map<String, Cached> map, String path) {
+    Cached cached = map.remove(path);
+    if (cached != null) {
+      weight -= cached.weight();
+    }
+  }
+
+  private void removeTree(Map<String, Cached> map, String path, String prefix) {
+    Iterator<Map.Entry<String, Cached>> entries = map.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, Cached> entry = entries.next();
+      if (entry.getKey().equals(path) || entry.getKey().startsWith(prefix)) {
+        weight -= entry.getValue().weight();
+        entries.remove();
+      }
+    }
+  }
+}
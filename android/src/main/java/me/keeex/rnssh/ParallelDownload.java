@@ -0,0 +1,263 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Downloads one remote file over several SFTP channels at once.
+ *
+ * The file is split into fixed-size ranges. Each worker owns a channel and one
+ * contiguous run of ranges, reads it with pipelined requests and writes it at
+ * its offset in a ".part" file, which is renamed into place once every range
+ * has arrived. Completed ranges are recorded in a TransferJournal so that an
+ * interrupted download can be resumed.
+ *
+ * JSch keeps bulkRequests reads in flight until the stream is closed, so a
+ * stream reads up to that many requests past the point where it is closed.
+ * Reading each run through one stream pays that once per worker rather than
+ * once per range.
+ */
+class ParallelDownload {
+  static final int DEFAULT_CHANNELS = 4;
+  static final int MAX_CHANNELS = 8;
+  static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  static final int DEFAULT_BULK_REQUESTS = 32;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Session session;
+  private final SshExecutor executor;
+  private final String remotePath;
+  private final File destination;
+  int channels = DEFAULT_CHANNELS;
+  int chunkSize = DEFAULT_CHUNK_SIZE;
+  int bulkRequests = DEFAULT_BULK_REQUESTS;
+  boolean resume = true;
+  long resumedBytes = 0;
+
+  ParallelDownload(Session session, SshExecutor executor, String remotePath, File destination) {
+    this.session = session;
+    this.executor = executor;
+    this.remotePath = remotePath;
+    this.destination = destination;
+  }
+
+  /**
+   * Attributes of the remote file, read on a short-lived channel.
+   */
+  SftpATTRS remoteStat() throws JSchException, SftpException {
+    ChannelSftp channel = openChannel();
+    try {
+      return channel.stat(remotePath);
+    } finally {
+      channel.disconnect();
+    }
+  }
+
+  /**
+   * Downloads the file described by attrs. When resume is set, the chunks
+   * recorded in the journal next to the ".part" file are kept as long as the
+   * remote size and mtime are unchanged and the part file is intact; on
+   * failure both are left behind for the next attempt.
+   */
+  void run(SftpATTRS attrs, final TransferProgress progress) throws Exception {
+    final File part = new File(destination.getPath() + ".part");
+    final long size = attrs.getSize();
+    final TransferJournal journal = TransferJournal.open(new File(part.getPath() + ".journal"),
+      remotePath, destination.getPath(), size, attrs.getMTime(), chunkSize, resume);
+    if (journal.completedBytes() > 0 && part.length() != size) {
+      journal.reset();
+    }
+    final int chunkCount = journal.getChunkCount();
+    int workers = Math.max(1, Math.min(Math.min(MAX_CHANNELS, channels), chunkCount));
+
+    try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+      file.setLength(size);
+      final FileChannel output = file.getChannel();
+      resumedBytes = journal.completedBytes();
+      progress.skip(resumedBytes);
+      if (progress.isCancelled()) {
+        throw new InterruptedException("Download cancelled");
+      }
+      final AtomicBoolean stopped = new AtomicBoolean(false);
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        final int first = (int) ((long) chunkCount * i / workers);
+        final int last = (int) ((long) chunkCount * (i + 1) / workers);
+        futures.add(executor.startStream(new Callable<Void>() {
+          public Void call() throws Exception {
+            ChannelSftp channel = openChannel();
+            try {
+              if (!readChunks(channel, journal, first, last, output, progress, stopped)) {
+                throw new InterruptedException("Download cancelled");
+              }
+            } finally {
+              channel.disconnect();
+            }
+            return null;
+          }
+        }));
+      }
+      awaitAll(futures, new Runnable() {
+        public void run() {
+          stopped.set(true);
+        }
+      });
+      progress.finish();
+      output.force(false);
+    } catch (Exception error) {
+      if (resume) {
+        journal.close();
+      } else {
+        journal.delete();
+        part.delete();
+      }
+      throw error;
+    }
+
+    journal.delete();
+    if (destination.exists() && !destination.delete()) {
+      throw new IOException("Cannot replace " + destination.getPath());
+    }
+    if (!part.renameTo(destination)) {
+      throw new IOException("Cannot rename " + part.getPath());
+    }
+  }
+
+  private ChannelSftp openChannel() throws JSchException {
+    ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+    channel.setBulkRequests(bulkRequests);
+    channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+    return channel;
+  }
+
+  // Copies the chunks in [first, last) that are not done yet to the same
+  // ranges of the output, each run of consecutive missing chunks through a
+  // single stream. Returns false if the transfer was cancelled or another
+  // worker failed.
+  private boolean readChunks(ChannelSftp channel, TransferJournal journal, int first, int last,
+                             FileChannel output, TransferProgress progress, AtomicBoolean stopped)
+      throws SftpException, IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int chunk = first;
+    while (chunk < last) {
+      if (journal.isDone(chunk)) {
+        chunk++;
+        continue;
+      }
+      int end = chunk;
+      while (end < last && !journal.isDone(end)) {
+        end++;
+      }
+      try (InputStream in = channel.get(remotePath, null, journal.chunkStart(chunk))) {
+        for (; chunk < end; chunk++) {
+          long offset = journal.chunkStart(chunk);
+          if (!copy(in, buffer, offset, journal.chunkEnd(chunk) - offset, output, progress, stopped)) {
+            return false;
+          }
+          output.force(false);
+          journal.markDone(chunk);
+        }
+      }
+    }
+    return true;
+  }
+
+  // Copies the next length bytes of the stream to [offset, offset + length) of
+  // the output. Returns false if the transfer was cancelled or stopped.
+  private boolean copy(InputStream in, byte[] buffer, long offset, long length, FileChannel output,
+                       TransferProgress progress, AtomicBoolean stopped) throws IOException {
+    long position = offset;
+    long remaining = length;
+    while (remaining > 0) {
+      int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+      if (read < 0) {
+        throw new IOException("Unexpected end of file at offset " + position + " of " + remotePath);
+      }
+      ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+      while (data.hasRemaining()) {
+        position += output.write(data, position);
+      }
+      remaining -= read;
+      if (!progress.add(read) || stopped.get()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Waits for every worker and rethrows the first failure. On the first
+   * failure stop is run so that the other workers wind down, and they are
+   * still waited for: SFTP reads and writes ignore interrupts, so a worker
+   * left running could keep writing to files the caller is about to close,
+   * delete or reuse.
+   */
+  static void awaitAll(List<? extends Future<?>> futures, Runnable stop) throws Exception {
+    Exception failure = null;
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      while (true) {
+        try {
+          future.get();
+        } catch (ExecutionException error) {
+          if (failure == null) {
+            failure = error.getCause() instanceof Exception ? (Exception) error.getCause() : error;
+            stop.run();
+          }
+        } catch (CancellationException error) {
+          // Never started.
+        } catch (InterruptedException error) {
+          if (failure == null) {
+            failure = error;
+            stop.run();
+          }
+          interrupted = true;
+          continue;
+        }
+        break;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  static String sha256(File file) throws IOException, NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,213 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads one local file over several SFTP channels at once.
+ *
+ * The file is split into fixed-size chunks. Each worker owns a channel, claims
+ * the next chunk, reads it with positional reads and writes it at its offset
+ * into a ".part" file on the server, which is renamed over the destination once
+ * every chunk is written. Completed chunks are recorded in a TransferJournal
+ * kept on the device so that an interrupted upload can be resumed.
+ *
+ * ChannelSftp only opens a file for writing at an arbitrary offset without
+ * truncating it in RESUME mode, where it adds the current remote size to the
+ * offset. The part file is therefore extended to its final size up front, so
+ * that size is the same whenever a chunk is opened.
+ */
+class ParallelUpload {
+  static final int DEFAULT_CHANNELS = 4;
+  static final int MAX_CHANNELS = 8;
+  static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Session session;
+  private final SshExecutor executor;
+  private final File source;
+  private final String remotePath;
+  private final File journalFile;
+  int channels = DEFAULT_CHANNELS;
+  int chunkSize = DEFAULT_CHUNK_SIZE;
+  boolean resume = true;
+  long resumedBytes = 0;
+
+  ParallelUpload(Session session, SshExecutor executor, File source, String remotePath, File journalFile) {
+    this.session = session;
+    this.executor = executor;
+    this.source = source;
+    this.remotePath = remotePath;
+    this.journalFile = journalFile;
+  }
+
+  /**
+   * Uploads the file. When resume is set, the chunks recorded in the journal
+   * are kept as long as the local file is unchanged and the remote part file
+   * still has the expected size; on failure both are left behind for the next
+   * attempt.
+   */
+  void run(final TransferProgress progress) throws Exception {
+    final String part = remotePath + ".part";
+    final long size = source.length();
+    final TransferJournal journal = TransferJournal.open(journalFile, source.getPath(), remotePath,
+      size, source.lastModified(), chunkSize, resume);
+    final AtomicInteger nextChunk = new AtomicInteger(0);
+    int workers = Math.max(1, Math.min(Math.min(MAX_CHANNELS, channels), journal.getChunkCount()));
+
+    final List<ChannelSftp> opened = Collections.synchronizedList(new ArrayList<ChannelSftp>());
+    try (RandomAccessFile file = new RandomAccessFile(source, "r")) {
+      final FileChannel input = file.getChannel();
+      ChannelSftp control = openChannel(opened);
+      if (journal.completedBytes() > 0 && partSize(control, part) != size) {
+        journal.reset();
+      }
+      if (journal.completedBytes() == 0) {
+        preallocate(control, part, size);
+      }
+      resumedBytes = journal.completedBytes();
+      progress.skip(resumedBytes);
+      if (progress.isCancelled()) {
+        throw new InterruptedException("Upload cancelled");
+      }
+
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.startStream(new Callable<Void>() {
+          public Void call() throws Exception {
+            ChannelSftp channel = openChannel(opened);
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < journal.getChunkCount()) {
+              if (journal.isDone(chunk)) {
+                continue;
+              }
+              long start = journal.chunkStart(chunk);
+              // Closing the stream waits for the server to acknowledge every write.
+              try (OutputStream out = channel.put(part, null, ChannelSftp.RESUME, start - size)) {
+                if (!writeRange(input, start, journal.chunkEnd(chunk), out, progress)) {
+                  throw new InterruptedException("Upload cancelled");
+                }
+              }
+              journal.markDone(chunk);
+            }
+            return null;
+          }
+        }));
+      }
+      ParallelDownload.awaitAll(futures, new Runnable() {
+        public void run() {
+          nextChunk.set(journal.getChunkCount());
+        }
+      });
+      progress.finish();
+
+      replace(control, part, remotePath);
+      journal.delete();
+    } catch (Exception error) {
+      if (resume) {
+        journal.close();
+      } else {
+        journal.delete();
+        if (!opened.isEmpty()) {
+          try {
+            opened.get(0).rm(part);
+          } catch (SftpException ignored) {
+            // Leave the part file behind.
+          }
+        }
+      }
+      throw error;
+    } finally {
+      synchronized (opened) {
+        for (ChannelSftp channel : opened) {
+          channel.disconnect();
+        }
+      }
+    }
+  }
+
+  // Creates the part file empty, then extends it to its final size by writing
+  // its last byte. That byte is overwritten by the last chunk.
+  private static void preallocate(ChannelSftp channel, String part, long size) throws SftpException, IOException {
+    channel.put(part, null, ChannelSftp.OVERWRITE, 0).close();
+    if (size == 0) {
+      return;
+    }
+    try (OutputStream out = channel.put(part, null, ChannelSftp.RESUME, size - 1)) {
+      out.write(0);
+    }
+    if (partSize(channel, part) != size) {
+      throw new IOException("Cannot extend " + part);
+    }
+  }
+
+  private static long partSize(ChannelSftp channel, String part) {
+    try {
+      return channel.stat(part).getSize();
+    } catch (SftpException error) {
+      return -1;
+    }
+  }
+
+  /**
+   * Moves a file over another one. Uses posix-rename when the server supports
+   * it, which replaces the destination atomically; otherwise removes the
+   * destination first.
+   */
+  static void replace(ChannelSftp channel, String from, String to) throws SftpException {
+    try {
+      channel.rename(from, to);
+    } catch (SftpException error) {
+      try {
+        channel.rm(to);
+      } catch (SftpException ignored) {
+        throw error;
+      }
+      channel.rename(from, to);
+    }
+  }
+
+  private ChannelSftp openChannel(List<ChannelSftp> opened) throws JSchException {
+    ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+    opened.add(channel);
+    channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+    return channel;
+  }
+
+  // Copies [start, end) of the local file to the stream. Returns false if the
+  // transfer was cancelled.
+  private static boolean writeRange(FileChannel input, long start, long end, OutputStream out,
+                                    TransferProgress progress) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long position = start;
+    while (position < end) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), end - position));
+      int read = input.read(buffer, position);
+      if (read < 0) {
+        throw new IOException("File shrank while uploading");
+      }
+      out.write(buffer.array(), 0, read);
+      position += read;
+      if (!progress.add(read)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,206 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.SocketFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * TCP connection opened ahead of authentication.
+ *
+ * JSch performs TCP connect, key exchange and userauth in a single
+ * Session.connect() and drops the transport when userauth fails, so the
+ * handshake itself cannot be shared between authentication attempts. What can
+ * be saved is the TCP round trip: connectToHost() opens the socket, and after a
+ * failed attempt a fresh one is opened in the background so that the next
+ * authenticate call finds it ready.
+ */
+class PreparedTransport implements SocketFactory {
+  // sshd closes connections that do not authenticate within LoginGraceTime
+  // (120s by default); do not hand out sockets getting close to that.
+  private static final long MAX_IDLE_MS = 60 * 1000;
+
+  private final String host;
+  private final int port;
+  private final int timeout;
+  private Socket ready = null;
+  private long readySince = 0;
+  private BackgroundConnect pending = null;
+  private long tcpMillis = 0;
+  private boolean lastPrepared = false;
+
+  PreparedTransport(String host, int port, int timeout) {
+    this.host = host;
+    this.port = port;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Opens the TCP connection now, on the calling thread.
+   */
+  synchronized void prepare() throws IOException {
+    discard();
+    ready = open();
+    readySince = System.currentTimeMillis();
+  }
+
+  /**
+   * Opens the TCP connection in the background.
+   */
+  synchronized void prepareAsync(SshExecutor executor) {
+    discard();
+    BackgroundConnect connect = new BackgroundConnect();
+    connect.future = executor.submit(connect);
+    pending = connect.future != null ? connect : null;
+    readySince = System.currentTimeMillis();
+  }
+
+  /**
+   * Time spent in the TCP connect of the socket last handed to JSch.
+   */
+  synchronized long getTcpMillis() {
+    return tcpMillis;
+  }
+
+  /**
+   * Whether the socket last handed to JSch had been opened beforehand.
+   */
+  synchronized boolean wasPrepared() {
+    return lastPrepared;
+  }
+
+  synchronized void close() {
+    discard();
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    Socket socket = take();
+    synchronized (this) {
+      lastPrepared = socket != null;
+    }
+    if (socket != null) {
+      return socket;
+    }
+    return open();
+  }
+
+  @Override
+  public InputStream getInputStream(Socket socket) throws IOException {
+    return socket.getInputStream();
+  }
+
+  @Override
+  public OutputStream getOutputStream(Socket socket) throws IOException {
+    return socket.getOutputStream();
+  }
+
+  private Socket open() throws IOException {
+    return open(new Socket());
+  }
+
+  private Socket open(Socket socket) throws IOException {
+    long start = System.nanoTime();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port), timeout);
+    } catch (IOException error) {
+      socket.close();
+      throw error;
+    }
+    synchronized (this) {
+      tcpMillis = (System.nanoTime() - start) / 1000000;
+    }
+    return socket;
+  }
+
+  // Returns the prepared socket if it is still usable, null otherwise. The
+  // background connect also takes the lock, so wait for it outside of it.
+  private Socket take() {
+    Socket socket;
+    BackgroundConnect connect;
+    boolean fresh;
+    synchronized (this) {
+      socket = ready;
+      connect = pending;
+      fresh = System.currentTimeMillis() - readySince < MAX_IDLE_MS;
+      ready = null;
+      pending = null;
+    }
+    if (socket == null && connect != null) {
+      try {
+        socket = connect.future.get();
+      } catch (Exception error) {
+        return null;
+      }
+    }
+    if (socket == null) {
+      return null;
+    }
+    if (!fresh || socket.isClosed() || !socket.isConnected()) {
+      closeQuietly(socket);
+      return null;
+    }
+    return socket;
+  }
+
+  private void discard() {
+    if (ready != null) {
+      closeQuietly(ready);
+      ready = null;
+    }
+    if (pending != null) {
+      pending.cancel();
+      pending = null;
+    }
+  }
+
+  // Background connect that can be abandoned at any point: cancelling closes
+  // the socket, which also aborts a connect in progress, and a connect that
+  // completes afterwards closes its socket instead of returning it.
+  private class BackgroundConnect implements Callable<Socket> {
+    Future<Socket> future;
+    private Socket socket = null;
+    private boolean cancelled = false;
+
+    public Socket call() throws IOException {
+      Socket created = new Socket();
+      synchronized (this) {
+        if (cancelled) {
+          throw new IOException("Connect cancelled");
+        }
+        socket = created;
+      }
+      open(created);
+      synchronized (this) {
+        if (cancelled) {
+          closeQuietly(created);
+          throw new IOException("Connect cancelled");
+        }
+      }
+      return created;
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      closeQuietly(socket);
+      future.cancel(false);
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    if (socket == null) {
+      return;
+    }
+    try {
+      socket.close();
+    } catch (IOException error) {
+      // Nothing to do.
+    }
+  }
+}
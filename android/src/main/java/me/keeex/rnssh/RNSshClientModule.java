@@ -10,7 +10,9 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
@@ -21,23 +23,21 @@ import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
 import com.jcraft.jsch.ChannelShell;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
-import com.jcraft.jsch.SftpProgressMonitor;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Vector;
+import java.nio.charset.StandardCharsets;
 
 import okhttp3.internal.Util;
 
@@ -54,39 +54,39 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.ByteArrayOutputStream;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.UUID;
 import android.util.Base64;
 
 public class RNSshClientModule extends ReactContextBaseJavaModule {
-  private class SSHClient {
-    Session _session;
-    String _key;
-    BufferedReader _bufferedReader;
-    DataOutputStream _dataOutputStream;
-    Channel _channel = null;
-    ChannelSftp _sftpSession = null;
-    Boolean _downloadContinue = false;
-    Boolean _uploadContinue = false;
-  }
-
-  private class SignRequest {
-    CountDownLatch latch;
-    String signature;
-    
-    SignRequest() {
-      this.latch = new CountDownLatch(1);
-      this.signature = null;
-    }
-  }
-
   private final ReactApplicationContext reactContext;
   private static final String LOGTAG = "RNSSHClient";
   private static final String DOWNLOAD_PATH = Environment.getExternalStorageDirectory().getPath();
-
-  Map<String, SSHClient> clientPool = new HashMap<>();
-  Map<String, SignRequest> pendingSignRequests = new HashMap<>();
+  private static final int DEFAULT_EXEC_MAX_CAPTURE = 8 * 1024 * 1024;
+  private static final String TRANSFER_JOURNAL_DIR = "sftp-transfers";
+  private static final int DEFAULT_LS_PAGE_SIZE = 500;
+  private static final int SHA256_BATCH = 64;
+
+  private final SessionRegistry registry = new SessionRegistry();
+  private final SignBroker signBroker = new SignBroker();
+  private final SshExecutor executor = new SshExecutor();
+  private final TransportPool transports = new TransportPool(executor);
+  private final SshConfig config = new SshConfig();
+  private final IdentityCache identities = new IdentityCache(executor, config.jsch());
+  private volatile long progressIntervalMs = TransferProgress.DEFAULT_INTERVAL_MS;
+  private volatile long progressMinBytes = TransferProgress.DEFAULT_MIN_DELTA;
+  private volatile boolean metadataCacheEnabled = false;
+  private volatile long metadataCacheTtlMs = MetadataCache.DEFAULT_TTL_MS;
+  private volatile int metadataCacheMaxEntries = MetadataCache.DEFAULT_MAX_ENTRIES;
+  private final SessionHealth health = new SessionHealth(registry, executor, new SessionHealth.Listener() {
+    public void disconnected(SSHClient client) {
+      Log.e(LOGTAG, "Connection lost: " + client._key);
+      if (!startReconnect(client)) {
+        sendDisconnected(client, "Connection lost");
+      }
+    }
+  });
+  // Set while an operation runs again after a reconnection, so it is not
+  // replayed twice.
+  private final ThreadLocal<Boolean> replaying = new ThreadLocal<>();
 
   public RNSshClientModule(ReactApplicationContext reactContext) {
     super(reactContext);
@@ -98,6 +98,14 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
     return "RNSSHClient";
   }
 
+  @Override
+  public void invalidate() {
+    health.stop();
+    identities.clear();
+    executor.shutdown();
+    super.invalidate();
+  }
+
   private void sendEvent(ReactContext reactContext,
                          String eventName,
                          @Nullable WritableMap params) {
@@ -118,24 +126,30 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
 
   @ReactMethod
   public void connectToHost(final String host, final Integer port, final String username, final String key, final Callback callback) {
-    new Thread(new Runnable() {
+    executor.submit(key, new Runnable() {
       public void run() {
         try {
-          JSch jsch = new JSch();
-          Session session = jsch.getSession(username, host, port);
-
-          Properties properties = new Properties();
-          properties.setProperty("StrictHostKeyChecking", "no");
-          session.setConfig(properties);
-          
-          // Don't connect yet - just create the session and store it
-          // Connection will happen during authentication
+          Session session = config.newSession(username, host, port, null);
+
+          // Open the TCP connection now; key exchange and userauth happen in
+          // the authenticate call, over this socket. Skip it when a shared
+          // transport to this host will most likely be reused instead.
+          PreparedTransport transport = new PreparedTransport(host, port, config.connectTimeoutMs(host));
+          if (!transports.hasLive(host, port, username)) {
+            transport.prepare();
+            SshLog.d("TCP connection established in %dms (not authenticated yet)", transport.getTcpMillis());
+          }
+
           SSHClient client = new SSHClient();
           client._session = session;
           client._key = key;
-          clientPool.put(key, client);
+          client._host = host;
+          client._port = port;
+          client._username = username;
+          client._transport = transport;
+          client._transports = transports;
+          registry.put(key, client);
 
-          Log.d(LOGTAG, "Session created (not connected yet)");
           callback.invoke();
         } catch (JSchException error) {
           Log.e(LOGTAG, "Session creation failed: " + error.getMessage());
@@ -145,37 +159,344 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
           callback.invoke(error.getMessage());
         }
       }
-    }).start();
+    }, callback);
+  }
+
+  /**
+   * Connects a session from the factory over the client's prepared transport
+   * and installs it in place of the previous one. The previous session is only
+   * dropped once the new one is authenticated, and a failed attempt prepares a
+   * new TCP connection for the next one.
+   */
+  private void connectSession(SSHClient client, Reconnector.SessionFactory factory, String method, @Nullable String transportId) throws JSchException {
+    Session session = factory.create();
+    SessionTimings timings = new SessionTimings(method);
+    PreparedTransport transport = client._transport;
+    session.setLogger(timings);
+    if (transport != null) {
+      session.setSocketFactory(transport);
+    }
+    try {
+      health.apply(session);
+      session.connect(config.connectTimeoutMs(client._host));
+    } catch (JSchException error) {
+      if (transport != null && !(client._session != null && client._session.isConnected())) {
+        transport.prepareAsync(executor);
+      }
+      throw error;
+    } finally {
+      factory.release(session);
+      if (transport != null) {
+        timings.tcpMillis = transport.getTcpMillis();
+        timings.preparedSocket = transport.wasPrepared();
+      }
+      client._timings = timings;
+      SshLog.d("Connection timings %s", timings);
+    }
+
+    boolean shared = transports.register(transportId, session);
+    client.setSession(session, shared ? transportId : null);
+    health.watch(client);
+  }
+
+  /**
+   * Attaches a client to a live shared transport authenticated with the same
+   * credential, if there is one. Costs no handshake at all.
+   */
+  private boolean attachSharedTransport(SSHClient client, @Nullable String transportId, String method) {
+    Session shared = transports.acquire(transportId);
+    if (shared == null) {
+      return false;
+    }
+    client.setSession(shared, transportId);
+    if (client._transport != null) {
+      client._transport.close();
+    }
+    client._timings = new SessionTimings(method + " (shared)");
+    health.watch(client);
+    SshLog.d("Attached to shared transport (%s)", method);
+    return true;
+  }
+
+  /**
+   * Enables or disables sharing one authenticated transport between clients
+   * that connect to the same host and user with the same credential. A shared
+   * transport nobody uses is closed after idleTimeoutMs.
+   */
+  @ReactMethod
+  public void setTransportSharing(final boolean enabled, final double idleTimeoutMs) {
+    transports.configure(enabled, (long) idleTimeoutMs);
+  }
+
+  /**
+   * Sets the session defaults (algorithms, compression, connect timeout) of a
+   * host, or of every host when host is null, for sessions created from now
+   * on. Null options remove them. See SshConfig.register for the options.
+   */
+  @ReactMethod
+  public void setSessionDefaults(@Nullable final String host, @Nullable final ReadableMap options, final Callback callback) {
+    try {
+      config.register(host, options);
+      callback.invoke();
+    } catch (Exception error) {
+      Log.e(LOGTAG, "Invalid session defaults: " + error.getMessage());
+      callback.invoke(error.getMessage());
+    }
+  }
+
+  /**
+   * Sets the keepalive interval and the number of unanswered keepalives after
+   * which a session is dropped, for sessions connected from now on, and how
+   * often sessions are checked for a Disconnected event. An interval of 0
+   * disables keepalives.
+   */
+  @ReactMethod
+  public void setSessionHealth(final double keepaliveIntervalMs, final double keepaliveCountMax, final double monitorIntervalMs) {
+    health.configure((int) keepaliveIntervalMs, (int) keepaliveCountMax, (long) monitorIntervalMs);
+  }
+
+  /**
+   * Sets the level of the debug logs of the module: "verbose", "debug",
+   * "info" (the default), "warn" or "none". Verbose logs include signatures
+   * and the data to sign; errors are always logged.
+   */
+  @ReactMethod
+  public void setLogLevel(final String level) {
+    try {
+      SshLog.setLevel(SshLog.parseLevel(level));
+    } catch (IllegalArgumentException error) {
+      Log.e(LOGTAG, error.getMessage());
+    }
+  }
+
+  /**
+   * Enables automatic reconnection for a client, or disables it when options
+   * is null. Once the connection is lost, the session is authenticated again
+   * the way it was last time (password, key or sign callback), the SFTP
+   * channel is reopened, and operations queued meanwhile run on the new
+   * session. Listings, stats and downloads that failed because of the lost
+   * connection are run again once.
+   *
+   * Options: maxAttempts (default 8), initialDelayMs (default 500) and
+   * maxDelayMs (default 30000) for the backoff between attempts.
+   *
+   * The credentials are only kept while it is enabled, so it has to be enabled
+   * before authenticating; disabling it drops them.
+   */
+  @ReactMethod
+  public void setAutoReconnect(@Nullable final ReadableMap options, final String key, final Callback callback) {
+    SSHClient client = registry.peek(key);
+    if (client == null) {
+      callback.invoke("Client not connected");
+      return;
+    }
+    Reconnector previous = client._reconnector;
+    if (previous != null) {
+      previous.cancel();
+    }
+    if (options == null) {
+      client._reconnector = null;
+      client.forgetAuthentication();
+      callback.invoke();
+      return;
+    }
+    int maxAttempts = options.hasKey("maxAttempts") ? options.getInt("maxAttempts") : Reconnector.DEFAULT_MAX_ATTEMPTS;
+    long initialDelayMs = options.hasKey("initialDelayMs")
+      ? (long) options.getDouble("initialDelayMs") : Reconnector.DEFAULT_INITIAL_DELAY_MS;
+    long maxDelayMs = options.hasKey("maxDelayMs")
+      ? (long) options.getDouble("maxDelayMs") : Reconnector.DEFAULT_MAX_DELAY_MS;
+    client._reconnector = new Reconnector(maxAttempts, initialDelayMs, maxDelayMs);
+    callback.invoke();
+  }
+
+  private void sendDisconnected(SSHClient client, String reason) {
+    WritableMap map = Arguments.createMap();
+    map.putString("name", "Disconnected");
+    map.putString("key", client._key);
+    map.putString("value", reason);
+    sendEvent(reactContext, "Disconnected", map);
+  }
+
+  /**
+   * Queues a reconnection on the lane of a client that has automatic
+   * reconnection enabled. Returns false if it has not.
+   */
+  private boolean startReconnect(final SSHClient client) {
+    final Reconnector reconnector = client._reconnector;
+    if (reconnector == null || client._sessionFactory == null) {
+      return false;
+    }
+    if (!reconnector.begin()) {
+      // Already under way.
+      return true;
+    }
+    client._disconnected = true;
+    final String key = client._key;
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient current = registry.acquire(key);
+        if (current != client) {
+          registry.release(current);
+          reconnector.abandon();
+          return;
+        }
+        try {
+          reconnect(client, reconnector);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, new Callback() {
+      public void invoke(Object... args) {
+        reconnector.abandon();
+        sendDisconnected(client, "Connection lost");
+      }
+    });
+    return true;
+  }
+
+  private void reconnect(final SSHClient client, Reconnector reconnector) {
+    final String key = client._key;
+    reconnector.run(new Reconnector.Attempt() {
+      public void connect() throws Exception {
+        Reconnector.SessionFactory factory = client._sessionFactory;
+        if (factory == null) {
+          // Automatic reconnection was disabled meanwhile.
+          throw new JSchException("Reconnect cancelled");
+        }
+        if (!attachSharedTransport(client, client._authTransportId, client._authMethod)) {
+          connectSession(client, factory, client._authMethod, client._authTransportId);
+        }
+        ChannelSftp previous = client._sftpSession;
+        if (previous != null) {
+          ChannelSftp channelSftp = (ChannelSftp) client._session.openChannel("sftp");
+          channelSftp.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+          client._sftpSession = channelSftp;
+          previous.disconnect();
+          if (client._metadataCache != null) {
+            client._metadataCache.clear();
+          }
+        }
+      }
+    }, new Reconnector.Listener() {
+      public void reconnecting(int attempt, long delayMs) {
+        WritableMap map = Arguments.createMap();
+        map.putString("name", "Reconnecting");
+        map.putString("key", key);
+        map.putInt("value", attempt);
+        map.putDouble("delayMs", delayMs);
+        sendEvent(reactContext, "Reconnecting", map);
+      }
+
+      public void reconnected(int attempts, long downtimeMs, long connectMs) {
+        client._reconnects++;
+        client._lastReconnectMs = downtimeMs;
+        SshLog.i("Reconnected %s after %d attempts, %dms", key, attempts, downtimeMs);
+        WritableMap map = Arguments.createMap();
+        map.putString("name", "Reconnected");
+        map.putString("key", key);
+        map.putDouble("value", downtimeMs);
+        map.putInt("attempts", attempts);
+        map.putDouble("downtimeMs", downtimeMs);
+        map.putDouble("connectMs", connectMs);
+        sendEvent(reactContext, "Reconnected", map);
+      }
+
+      public void failed(int attempts, String error) {
+        Log.e(LOGTAG, "Reconnect failed after " + attempts + " attempts: " + error);
+        client._disconnected = true;
+        sendDisconnected(client, error);
+      }
+    });
+  }
+
+  /**
+   * Runs an idempotent operation again once the client has reconnected, when
+   * it failed because the connection was lost and automatic reconnection is
+   * enabled. Returns false when the caller must report the failure.
+   */
+  private boolean replayAfterReconnect(SSHClient client, final Runnable operation, Callback callback) {
+    if (client == null || client._session == null || client._session.isConnected()
+        || Boolean.TRUE.equals(replaying.get()) || !startReconnect(client)) {
+      return false;
+    }
+    executor.submit(client._key, new Runnable() {
+      public void run() {
+        replaying.set(true);
+        try {
+          operation.run();
+        } finally {
+          replaying.remove();
+        }
+      }
+    }, callback);
+    return true;
+  }
+
+  /**
+   * Sets how often transfer progress events are sent: at most one per
+   * intervalMs, and only after minBytes more bytes have moved. The final event
+   * of a transfer is always sent.
+   */
+  @ReactMethod
+  public void setProgressThrottle(final double intervalMs, final double minBytes) {
+    progressIntervalMs = Math.max(0, (long) intervalMs);
+    progressMinBytes = Math.max(0, (long) minBytes);
+  }
+
+  @ReactMethod
+  public void getConnectionTimings(final String key, final Callback callback) {
+    SSHClient client = registry.peek(key);
+    if (client == null || client._timings == null) {
+      callback.invoke("No connection attempt for client " + key);
+      return;
+    }
+    SessionTimings timings = client._timings;
+    WritableMap map = Arguments.createMap();
+    map.putString("method", timings.method);
+    map.putDouble("tcpMs", timings.tcpMillis);
+    map.putBoolean("preparedSocket", timings.preparedSocket);
+    map.putDouble("kexMs", timings.kexMillis());
+    map.putDouble("userauthMs", timings.authMillis());
+    map.putDouble("connectMs", timings.connectMillis());
+    map.putInt("reconnects", client._reconnects);
+    map.putDouble("lastReconnectMs", client._lastReconnectMs);
+    callback.invoke(null, map);
   }
 
   @ReactMethod
   public void authenticateWithPassword(final String password, final String key, final Callback callback) {
-    new Thread(new Runnable() {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
-          if (client != null && client._session != null && client._session.isConnected()) {
-            // Disconnect current session
-            client._session.disconnect();
-            
-            // Create new session with password authentication
-            JSch jsch = new JSch();
-            Session session = jsch.getSession(client._session.getUserName(), client._session.getHost(), client._session.getPort());
-            session.setPassword(password);
-            
-            Properties properties = new Properties();
-            properties.setProperty("StrictHostKeyChecking", "no");
-            session.setConfig(properties);
-            session.connect();
-            
-            if (session.isConnected()) {
-              client._session = session;
-              Log.d(LOGTAG, "Password authentication successful");
+          if (client != null && client._session != null) {
+            String transportId = transports.transportId(client._host, client._port, client._username,
+              "password", password.getBytes(StandardCharsets.UTF_8));
+            final String username = client._username;
+            final String host = client._host;
+            final int port = client._port;
+            Reconnector.SessionFactory factory = new Reconnector.SessionFactory() {
+              public Session create() throws JSchException {
+                // Create new session with password authentication
+                Session session = config.newSession(username, host, port, null);
+                session.setPassword(password);
+                return session;
+              }
+
+              public void release(Session session) {
+              }
+            };
+            if (attachSharedTransport(client, transportId, "password")) {
+              client.rememberAuthentication(factory, "password", transportId);
               callback.invoke();
-            } else {
-              Log.e(LOGTAG, "Password authentication failed");
-              callback.invoke("Password authentication failed");
+              return;
             }
+            connectSession(client, factory, "password", transportId);
+            client.rememberAuthentication(factory, "password", transportId);
+
+            SshLog.d("Password authentication successful");
+            callback.invoke();
           } else {
             callback.invoke("Client not connected");
           }
@@ -185,31 +506,20 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Authentication failed: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void authenticateWithKey(final ReadableMap keyPairs, final String key, final Callback callback) {
-    new Thread(new Runnable() {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client != null && client._session != null) {
-            // Store connection details
-            String username = client._session.getUserName();
-            String host = client._session.getHost();
-            int port = client._session.getPort();
-            
-            // Disconnect current session if connected
-            if (client._session.isConnected()) {
-              client._session.disconnect();
-            }
-            
-            // Create new session with key authentication
-            JSch jsch = new JSch();
-            
             String privateKeyStr = keyPairs.getString("privateKey");
             String passphraseStr = keyPairs.hasKey("passphrase") ? keyPairs.getString("passphrase") : null;
             
@@ -229,27 +539,50 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
             } else {
               throw new Exception("Private key is required");
             }
-            
-            // Add identity to JSch
-            jsch.addIdentity("default", privateKey, publicKey, passphrase);
-            
-            Session session = jsch.getSession(username, host, port);
-            
-            Properties properties = new Properties();
-            properties.setProperty("StrictHostKeyChecking", "no");
-            properties.setProperty("PreferredAuthentications", "publickey");
-            session.setConfig(properties);
-            
-            session.connect();
-            
-            if (session.isConnected()) {
-              client._session = session;
-              Log.d(LOGTAG, "Key authentication successful");
+
+            String transportId = transports.transportId(client._host, client._port, client._username,
+              "publickey", privateKey, passphrase);
+            final byte[] identityKey = privateKey;
+            final byte[] identityPublicKey = publicKey;
+            final byte[] identityPassphrase = passphrase;
+            final String username = client._username;
+            final String host = client._host;
+            final int port = client._port;
+            Reconnector.SessionFactory factory = new Reconnector.SessionFactory() {
+              // Pinned in the cache from create() until release(). Sessions
+              // are created and connected one at a time on the client lane.
+              private Identity pinned = null;
+
+              public Session create() throws JSchException {
+                // Looked up on every call: a reconnection may come after the
+                // cached key has been evicted.
+                Identity identity = identities.get(identityKey, identityPublicKey, identityPassphrase);
+                try {
+                  Session session = config.newSession(username, host, port, identity);
+                  session.setConfig("PreferredAuthentications", "publickey");
+                  pinned = identity;
+                  return session;
+                } catch (JSchException error) {
+                  identities.release(identity);
+                  throw error;
+                }
+              }
+
+              public void release(Session session) {
+                identities.release(pinned);
+                pinned = null;
+              }
+            };
+            if (attachSharedTransport(client, transportId, "publickey")) {
+              client.rememberAuthentication(factory, "publickey", transportId);
               callback.invoke();
-            } else {
-              Log.e(LOGTAG, "Key authentication failed - session not connected");
-              callback.invoke("Key authentication failed - session not connected");
+              return;
             }
+            connectSession(client, factory, "publickey", transportId);
+            client.rememberAuthentication(factory, "publickey", transportId);
+
+            SshLog.d("Key authentication successful");
+            callback.invoke();
           } else {
             Log.e(LOGTAG, "Client not found or session is null");
             callback.invoke("Client not connected");
@@ -260,33 +593,50 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Authentication failed: " + error.getMessage());
           callback.invoke("Authentication failed: " + error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void provideSignature(String requestId, String signatureBase64) {
-    Log.d(LOGTAG, "=== provideSignature() called ===");
-    Log.d(LOGTAG, "Request ID: " + requestId);
-    Log.d(LOGTAG, "Signature Base64 length: " + (signatureBase64 != null ? signatureBase64.length() : 0));
-    Log.d(LOGTAG, "Signature Base64: " + signatureBase64);
-    
-    SignRequest request = pendingSignRequests.get(requestId);
-    Log.d(LOGTAG, "Found pending request: " + (request != null));
-    Log.d(LOGTAG, "Total pending requests: " + pendingSignRequests.size());
-    
-    if (request != null) {
-      request.signature = signatureBase64;
-      Log.d(LOGTAG, "Set signature on request, counting down latch");
-      request.latch.countDown();
-      Log.d(LOGTAG, "Latch count down completed");
-    } else {
+    if (SshLog.isEnabled(SshLog.DEBUG)) {
+      SshLog.d("provideSignature() for request %s, signature length %d", requestId,
+        signatureBase64 != null ? signatureBase64.length() : 0);
+    }
+    SshLog.v("Signature Base64: %s", signatureBase64);
+
+    if (!signBroker.provide(requestId, signatureBase64)) {
       Log.e(LOGTAG, "No pending request found for ID: " + requestId);
-      Log.e(LOGTAG, "Available request IDs: " + pendingSignRequests.keySet().toString());
     }
   }
 
+  /**
+   * Sets how long a sign callback may take before authentication fails.
+   */
+  @ReactMethod
+  public void setSignTimeout(final double timeoutMs) {
+    signBroker.setTimeout((long) timeoutMs);
+  }
+
+  @ReactMethod
+  public void getSignStats(final Callback callback) {
+    SignBroker.Stats stats = signBroker.getStats();
+    WritableMap map = Arguments.createMap();
+    map.putDouble("requests", stats.requests);
+    map.putDouble("signed", stats.signed);
+    map.putDouble("failed", stats.failed);
+    map.putDouble("timedOut", stats.timedOut);
+    map.putDouble("cancelled", stats.cancelled);
+    map.putInt("pending", stats.pending);
+    map.putDouble("latencyP50Ms", stats.latencyP50Ms);
+    map.putDouble("latencyP99Ms", stats.latencyP99Ms);
+    map.putDouble("latencyMaxMs", stats.latencyMaxMs);
+    callback.invoke(null, map);
+  }
+
   private String extractAlgorithmFromKeyBlob(byte[] keyBlob) {
     try {
       // SSH public key format: 4-byte length + algorithm string + key data
@@ -306,7 +656,7 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
       
       // Extract and return algorithm string as-is
       String algorithm = new String(keyBlob, 4, algorithmLength);
-      Log.d(LOGTAG, "Extracted algorithm from keyBlob: " + algorithm);
+      SshLog.d("Extracted algorithm from keyBlob: %s", algorithm);
       return algorithm;
     } catch (Exception e) {
       Log.e(LOGTAG, "Error extracting algorithm from keyBlob: " + e.getMessage());
@@ -317,32 +667,17 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
   @ReactMethod
   public void authenticateWithSignCallback(final String publicKey, final String key, final Callback callback) {
     final byte[] keyBlob = Base64.decode(publicKey, Base64.DEFAULT);
-    StringBuilder keyBlobHex = new StringBuilder();
-    for (byte b : keyBlob) {
-      keyBlobHex.append(String.format("%02x", b));
+    if (SshLog.isEnabled(SshLog.VERBOSE)) {
+      SshLog.v("Key blob hex: " + SshLog.hex(keyBlob));
     }
-    Log.d(LOGTAG, "Key blob hex: " + keyBlobHex.toString());
 
-    new Thread(new Runnable() {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client != null && client._session != null) {
-            // Store connection details
-            String username = client._session.getUserName();
-            String host = client._session.getHost();
-            int port = client._session.getPort();
-            
-            // Disconnect current session if connected
-            if (client._session.isConnected()) {
-              client._session.disconnect();
-            }
-            
-            // Create new session with sign callback authentication
-            JSch jsch = new JSch();
-            
             // Create custom identity for sign callback
-            Identity identity = new Identity() {
+            final Identity identity = new Identity() {
               @Override
               public boolean setPassphrase(byte[] passphrase) throws JSchException {
                 return true;
@@ -350,132 +685,84 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
               
               @Override
               public byte[] getPublicKeyBlob() {
-                Log.d(LOGTAG, "=== getPublicKeyBlob() called ===");
+                SshLog.v("getPublicKeyBlob() called");
                 return keyBlob;
               }
               
               @Override
               public byte[] getSignature(byte[] data) {
                 try {
-                  Log.d(LOGTAG, "=== getSignature() called ===");
-                  Log.d(LOGTAG, "Data to sign length: " + data.length + " bytes");
-                  
-                  // Full hex dump of data
-                  StringBuilder dataHex = new StringBuilder();
-                  for (byte b : data) {
-                    dataHex.append(String.format("%02x", b));
+                  if (SshLog.isEnabled(SshLog.DEBUG)) {
+                    SshLog.d("getSignature() called, %d bytes to sign", data.length);
+                  }
+                  if (SshLog.isEnabled(SshLog.VERBOSE)) {
+                    SshLog.v("Data to sign hex: " + SshLog.hex(data));
+                  }
+
+                  byte[] rawSignature = signBroker.sign(key, data, new SignBroker.Emitter() {
+                    public void emit(String requestId, String dataBase64) {
+                      // Send event to JavaScript
+                      WritableMap params = Arguments.createMap();
+                      params.putString("name", "SignCallback");
+                      params.putString("key", key);
+                      params.putString("requestId", requestId);
+                      params.putString("data", dataBase64);
+                      sendEvent(reactContext, "SignCallback", params);
+                    }
+                  });
+                  if (SshLog.isEnabled(SshLog.DEBUG)) {
+                    SshLog.d("Received signature of %d bytes", rawSignature.length);
+                  }
+                  if (SshLog.isEnabled(SshLog.VERBOSE)) {
+                    SshLog.v("Raw signature hex: " + SshLog.hex(rawSignature));
                   }
-                  Log.d(LOGTAG, "Data to sign hex: " + dataHex.toString());
-                  
-                  String requestId = UUID.randomUUID().toString();
-                  String dataBase64 = Base64.encodeToString(data, Base64.DEFAULT);
-                  
-                  Log.d(LOGTAG, "Request ID: " + requestId);
-                  Log.d(LOGTAG, "Data Base64: " + dataBase64);
                   
-                  SignRequest signRequest = new SignRequest();
-                  pendingSignRequests.put(requestId, signRequest);
+                  // Extract algorithm from keyBlob
+                  String algorithm = extractAlgorithmFromKeyBlob(keyBlob);
+                  byte[] algorithmBytes = algorithm.getBytes();
                   
-                  Log.d(LOGTAG, "Created SignRequest and added to pending requests");
-                  Log.d(LOGTAG, "Pending requests count: " + pendingSignRequests.size());
+                  byte[] sshSignature = new byte[4 + algorithmBytes.length + 4 + rawSignature.length];
                   
-                  // Send event to JavaScript
-                  WritableMap params = Arguments.createMap();
-                  params.putString("name", "SignCallback");
-                  params.putString("key", key);
-                  params.putString("requestId", requestId);
-                  params.putString("data", dataBase64);
+                  int offset = 0;
                   
-                  Log.d(LOGTAG, "Sending SignCallback event to JavaScript with key: " + key);
+                  // Length of "ssh-rsa" (big-endian)
+                  sshSignature[offset++] = (byte) ((algorithmBytes.length >> 24) & 0xff);
+                  sshSignature[offset++] = (byte) ((algorithmBytes.length >> 16) & 0xff);
+                  sshSignature[offset++] = (byte) ((algorithmBytes.length >> 8) & 0xff);
+                  sshSignature[offset++] = (byte) (algorithmBytes.length & 0xff);
                   
-                  reactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit("SignCallback", params);
+                  // "ssh-rsa"
+                  System.arraycopy(algorithmBytes, 0, sshSignature, offset, algorithmBytes.length);
+                  offset += algorithmBytes.length;
                   
-                  Log.d(LOGTAG, "SignCallback event sent, waiting for response...");
+                  // Length of raw signature (big-endian)
+                  sshSignature[offset++] = (byte) ((rawSignature.length >> 24) & 0xff);
+                  sshSignature[offset++] = (byte) ((rawSignature.length >> 16) & 0xff);
+                  sshSignature[offset++] = (byte) ((rawSignature.length >> 8) & 0xff);
+                  sshSignature[offset++] = (byte) (rawSignature.length & 0xff);
                   
-                  // Wait for JavaScript callback (30 second timeout)
-                  boolean awaitResult = signRequest.latch.await(30, TimeUnit.SECONDS);
-                  Log.d(LOGTAG, "Latch await result: " + awaitResult);
-                  Log.d(LOGTAG, "SignRequest signature: " + (signRequest.signature != null ? "present" : "null"));
+                  // Raw signature bytes
+                  System.arraycopy(rawSignature, 0, sshSignature, offset, rawSignature.length);
                   
-                  if (awaitResult && signRequest.signature != null) {
-                    Log.d(LOGTAG, "Received signature from JavaScript: " + signRequest.signature);
-                    
-                    byte[] rawSignature = Base64.decode(signRequest.signature, Base64.DEFAULT);
-                    Log.d(LOGTAG, "Decoded raw signature length: " + rawSignature.length + " bytes");
-                    
-                    // Full hex dump of raw signature
-                    StringBuilder rawSigHex = new StringBuilder();
-                    for (byte b : rawSignature) {
-                      rawSigHex.append(String.format("%02x", b));
-                    }
-                    Log.d(LOGTAG, "Raw signature hex: " + rawSigHex.toString());
-                    
-                    // Extract algorithm from keyBlob
-                    String algorithm = extractAlgorithmFromKeyBlob(keyBlob);
-                    byte[] algorithmBytes = algorithm.getBytes();
-                    
-                    byte[] sshSignature = new byte[4 + algorithmBytes.length + 4 + rawSignature.length];
-                    
-                    int offset = 0;
-                    
-                    // Length of "ssh-rsa" (big-endian)
-                    sshSignature[offset++] = (byte) ((algorithmBytes.length >> 24) & 0xff);
-                    sshSignature[offset++] = (byte) ((algorithmBytes.length >> 16) & 0xff);
-                    sshSignature[offset++] = (byte) ((algorithmBytes.length >> 8) & 0xff);
-                    sshSignature[offset++] = (byte) (algorithmBytes.length & 0xff);
-                    
-                    // "ssh-rsa"
-                    System.arraycopy(algorithmBytes, 0, sshSignature, offset, algorithmBytes.length);
-                    offset += algorithmBytes.length;
-                    
-                    // Length of raw signature (big-endian)
-                    sshSignature[offset++] = (byte) ((rawSignature.length >> 24) & 0xff);
-                    sshSignature[offset++] = (byte) ((rawSignature.length >> 16) & 0xff);
-                    sshSignature[offset++] = (byte) ((rawSignature.length >> 8) & 0xff);
-                    sshSignature[offset++] = (byte) (rawSignature.length & 0xff);
-                    
-                    // Raw signature bytes
-                    System.arraycopy(rawSignature, 0, sshSignature, offset, rawSignature.length);
-                    
-                    Log.d(LOGTAG, "Created SSH signature length: " + sshSignature.length + " bytes");
-                    
-                    // Full hex dump of SSH signature
-                    StringBuilder sshSigHex = new StringBuilder();
-                    for (byte b : sshSignature) {
-                      sshSigHex.append(String.format("%02x", b));
-                    }
-                    Log.d(LOGTAG, "SSH signature hex: " + sshSigHex.toString());
-                    
-                    pendingSignRequests.remove(requestId);
-                    Log.d(LOGTAG, "Removed request from pending, returning SSH signature");
-                    return sshSignature;
+                  if (SshLog.isEnabled(SshLog.VERBOSE)) {
+                    SshLog.v("SSH signature hex: " + SshLog.hex(sshSignature));
                   }
-                  
-                  Log.e(LOGTAG, "Sign callback failed - timeout or no signature received");
-                  Log.e(LOGTAG, "Await result: " + awaitResult);
-                  Log.e(LOGTAG, "Signature present: " + (signRequest.signature != null));
-                  
-                  pendingSignRequests.remove(requestId);
-                  throw new JSchException("Sign callback timeout or failed");
-                  
+
+                  return sshSignature;
                 } catch (Exception e) {
-                  Log.e(LOGTAG, "Sign callback exception: " + e.getMessage());
-                  e.printStackTrace();
+                  Log.e(LOGTAG, "Sign callback exception: " + e.getMessage(), e);
                   return null;
                 }
               }
               
               @Override
               public boolean decrypt() {
-                Log.d(LOGTAG, "=== decrypt() called ===");
+                SshLog.v("decrypt() called");
                 return true;
               }
               
               @Override
               public String getAlgName() {
-                Log.d(LOGTAG, "=== getAlgName() called ===");
                 String algorithm = extractAlgorithmFromKeyBlob(keyBlob);
                 
                 // Map SSH wire format algorithms to JSch-compatible names
@@ -488,46 +775,45 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
                   jschAlgorithm = algorithm; // Default to extracted algorithm
                 }
                 
-                Log.d(LOGTAG, "getAlgName returning: " + jschAlgorithm + " (extracted: " + algorithm + ")");
+                SshLog.v("getAlgName returning %s (extracted: %s)", jschAlgorithm, algorithm);
                 return jschAlgorithm;
               }
               
               @Override
               public String getName() {
-                Log.d(LOGTAG, "=== getName() called ===");
                 return "sign-callback";
               }
               
               @Override
               public boolean isEncrypted() {
-                Log.d(LOGTAG, "=== isEncrypted() called ===");
                 return false;
               }
               
               @Override
               public void clear() {
-                Log.d(LOGTAG, "=== clear() called ===");
                 // Nothing to clear
               }
             };
             
-            jsch.addIdentity(identity, null);
-            
-            Session session = jsch.getSession(username, host, port);
-            
-            Properties properties = new Properties();
-            properties.setProperty("StrictHostKeyChecking", "no");
-            session.setConfig(properties);
-            session.connect();
-            
-            if (session.isConnected()) {
-              client._session = session;
-              Log.d(LOGTAG, "Sign callback authentication successful");
-              callback.invoke();
-            } else {
-              Log.e(LOGTAG, "Sign callback authentication failed");
-              callback.invoke("Sign callback authentication failed");
-            }
+            final String username = client._username;
+            final String host = client._host;
+            final int port = client._port;
+            Reconnector.SessionFactory factory = new Reconnector.SessionFactory() {
+              public Session create() throws JSchException {
+                // Create new session with sign callback authentication
+                return config.newSession(username, host, port, identity);
+              }
+
+              public void release(Session session) {
+              }
+            };
+            // Not shared: the public key alone must not give access to a
+            // transport authenticated by someone else's signature.
+            connectSession(client, factory, "sign-callback", null);
+            client.rememberAuthentication(factory, "sign-callback", null);
+
+            SshLog.d("Sign callback authentication successful");
+            callback.invoke();
           } else {
             callback.invoke("Client not connected");
           }
@@ -537,16 +823,18 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Authentication failed: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void isAuthenticated(final String key, final Callback callback) {
     try {
-      SSHClient client = clientPool.get(key);
-      if (client != null && client._session != null && client._session.isConnected()) {
+      SSHClient client = registry.peek(key);
+      if (client != null && client._session != null && client._session.isConnected() && !client._disconnected) {
         callback.invoke(null, true);
       } else {
         callback.invoke(null, false);
@@ -579,12 +867,11 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
 
   @ReactMethod
   public void generateKeyPair(final String type, @Nullable final String passphrase, final int keySize, final String comment, final Callback callback) {
-    new Thread(new Runnable() {
+    executor.submit(new Runnable() {
         public void run() {
             try {
                 int keyType = getKeyTypeFromString(type); // You'll implement this to translate string to type
-                JSch jsch = new JSch();
-                KeyPair kpair = KeyPair.genKeyPair(jsch, keyType, keySize);
+                KeyPair kpair = KeyPair.genKeyPair(config.jsch(), keyType, keySize);
                 
                 // callback.invoke("Finger print: " + kpair.getFingerPrint());
                 ByteArrayOutputStream privateKeyOut = new ByteArrayOutputStream();
@@ -606,7 +893,7 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
                 callback.invoke("Failed to generate key pair: " + e.toString());
             }
         }
-    }).start();
+    }, callback);
 }
 
   @ReactMethod
@@ -621,8 +908,7 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
       privateKeyWriter.write(privateKey);
     }
 
-    JSch jsch = new JSch();
-    KeyPair kpair = KeyPair.load(jsch, tempPrivateKeyFile.getAbsolutePath());
+    KeyPair kpair = KeyPair.load(config.jsch(), tempPrivateKeyFile.getAbsolutePath());
 
     String keyType;
     switch (kpair.getKeyType()) {
@@ -660,35 +946,41 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
 
 
   private void connectToHostLegacy(final String host, final Integer port, final String username,final String password, final ReadableMap keyPairs, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
         try {
-          JSch jsch = new JSch();
-
+          Identity identity = null;
           if (password == null) {
             byte[] privateKey = keyPairs.getString("privateKey").getBytes();
             byte[] publicKey = keyPairs.hasKey("publicKey") ? keyPairs.getString("publicKey").getBytes() : null;
             byte[] passphrase = keyPairs.hasKey("passphrase") ? keyPairs.getString("passphrase").getBytes() : null;
-            jsch.addIdentity("default", privateKey, publicKey, passphrase);
+            identity = identities.get(privateKey, publicKey, passphrase);
           }
 
-          Session session = jsch.getSession(username, host, port);
+          Session session;
+          try {
+            session = config.newSession(username, host, port, identity);
 
-          if (password != null)
-            session.setPassword(password);
+            if (password != null)
+              session.setPassword(password);
 
-          Properties properties = new Properties();
-          properties.setProperty("StrictHostKeyChecking", "no");
-          session.setConfig(properties);
-          session.connect();
+            health.apply(session);
+            session.connect(config.connectTimeoutMs(host));
+          } finally {
+            identities.release(identity);
+          }
 
           if (session.isConnected()) {
             SSHClient client = new SSHClient();
             client._session = session;
             client._key = key;
-            clientPool.put(key, client);
+            client._host = host;
+            client._port = port;
+            client._username = username;
+            registry.put(key, client);
+            health.watch(client);
 
-            Log.d(LOGTAG, "Session connected");
+            SshLog.d("Session connected");
             callback.invoke();
           }
         } catch (JSchException error) {
@@ -699,264 +991,1001 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
           callback.invoke(error.getMessage());
         }
       }
-    }).start();
+    }, callback);
   }
 
 
   @ReactMethod
   public void execute(final String command, final String key, final Callback callback) {
-    new Thread(new Runnable() {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
-          Session session = client._session;
-
-          ChannelExec channel = (ChannelExec) session.openChannel("exec");
-          channel.setCommand(command);
-          channel.connect();
-
-          String line, response = "";
-          InputStream in = channel.getInputStream();
-          BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-          while ((line = reader.readLine()) != null) {
-            response += line + "\r\n";
-          }
+          // Uncapped, as it always was: callers of execute() expect the whole output.
+          CaptureBuffer stdout = new CaptureBuffer(CaptureBuffer.UNLIMITED);
+          int exitStatus = runCommand(client._session, command, stdout, null);
 
-          callback.invoke(null, response);
+          callback.invoke(null, toCrlfLines(stdout.toUtf8String()), exitStatus);
         } catch (JSchException error) {
           Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
         } catch (Exception error) {
           Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
+  /**
+   * Runs a command and reports stdout, stderr and the exit status.
+   *
+   * Options: maxCapture (bytes kept per stream, default 8 MiB) and stream. When
+   * stream is true nothing is captured; output is sent as ExecOutput events as
+   * it arrives and the callback only receives the exit status. cancelExec()
+   * stops the command, which then reports cancelled.
+   */
   @ReactMethod
-  public void startShell(final String key, final String ptyType, final Callback callback) {
-    new Thread(new Runnable()  {
+  public void executeWithOptions(final String command, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
-          Session session = client._session;
-
-          Channel channel = session.openChannel("shell");
-          ((ChannelShell)channel).setPtyType(ptyType);
-          channel.connect();
-
-          InputStream in = channel.getInputStream();
-          client._channel = channel;
-          client._bufferedReader = new BufferedReader(new InputStreamReader(in));
-          client._dataOutputStream = new DataOutputStream(channel.getOutputStream());
-
-          callback.invoke();
-
-//        int charVal;
-          String line;
-          while (client._bufferedReader != null && (line = client._bufferedReader.readLine()) != null) {
-            WritableMap map = Arguments.createMap();
-            map.putString("name", "Shell");
-            map.putString("key", key);
-            map.putString("value", line + '\n');
-//          map.putString("value", String.valueOf(charVal));
-            sendEvent(reactContext, "Shell", map);
+          boolean stream = options != null && options.hasKey("stream") && options.getBoolean("stream");
+          int maxCapture = options != null && options.hasKey("maxCapture")
+            ? options.getInt("maxCapture") : DEFAULT_EXEC_MAX_CAPTURE;
+          if (maxCapture < 0) {
+            throw new IllegalArgumentException("maxCapture must not be negative");
           }
 
+          WritableMap result = Arguments.createMap();
+          client._execCancelled = false;
+          if (stream) {
+            ExecEventStream stdout = new ExecEventStream(key, "stdout");
+            ExecEventStream stderr = new ExecEventStream(key, "stderr");
+            int exitStatus = runCommand(client._session, command, stdout, stderr, client);
+            stdout.close();
+            stderr.close();
+            result.putInt("exitStatus", exitStatus);
+          } else {
+            CaptureBuffer stdout = new CaptureBuffer(maxCapture);
+            CaptureBuffer stderr = new CaptureBuffer(maxCapture);
+            int exitStatus = runCommand(client._session, command, stdout, stderr, client);
+            result.putString("stdout", stdout.toUtf8String());
+            result.putString("stderr", stderr.toUtf8String());
+            result.putBoolean("truncated", stdout.isTruncated() || stderr.isTruncated());
+            result.putInt("exitStatus", exitStatus);
+          }
+          result.putBoolean("cancelled", client._execCancelled);
+          callback.invoke(null, result);
         } catch (JSchException error) {
-          Log.e(LOGTAG, "Error starting shell: " + error.getMessage());
-          callback.invoke(error.getMessage());
-        } catch (IOException error) {
-          Log.e(LOGTAG, "Error starting shell: " + error.getMessage());
+          Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
         } catch (Exception error) {
-          Log.e(LOGTAG, "Error sarting shell: " + error.getMessage());
+          Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
+  /**
+   * Stops the command run by executeWithOptions() on a client, if any, by
+   * closing its channel. Does not wait for the client lane.
+   */
   @ReactMethod
-  public void writeToShell(final String str, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+  public void cancelExec(final String key) {
+    SSHClient client = registry.peek(key);
+    if (client == null) {
+      return;
+    }
+    client._execCancelled = true;
+    ChannelExec channel = client._execChannel;
+    if (channel != null) {
+      channel.disconnect();
+    }
+  }
+
+  private int runCommand(Session session, String command, OutputStream stdout, @Nullable OutputStream stderr)
+      throws JSchException, InterruptedException {
+    return runCommand(session, command, stdout, stderr, null);
+  }
+
+  /**
+   * Runs a command on a new exec channel, writing its output to the given
+   * streams from the session thread, and waits for the channel to close.
+   * Returns the exit status, or -1 if the server did not send one. When owner
+   * is given, the channel can be closed meanwhile by cancelExec().
+   */
+  private int runCommand(Session session, String command, OutputStream stdout, @Nullable OutputStream stderr,
+                         @Nullable SSHClient owner) throws JSchException, InterruptedException {
+    ChannelExec channel = (ChannelExec) session.openChannel("exec");
+    ChannelCloseSignal closed = new ChannelCloseSignal(stderr);
+    try {
+      channel.setCommand(command);
+      channel.setOutputStream(stdout, true);
+      channel.setExtOutputStream(closed, false);
+      if (owner != null) {
+        owner._execChannel = channel;
+        if (owner._execCancelled) {
+          return -1;
+        }
+      }
+      try {
+        channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+      } catch (JSchException error) {
+        if (owner != null && owner._execCancelled) {
+          return -1;
+        }
+        throw error;
+      }
+      closed.await();
+      return channel.getExitStatus();
+    } finally {
+      if (owner != null) {
+        owner._execChannel = null;
+      }
+      channel.disconnect();
+    }
+  }
+
+  // Keeps the historical execute() output format: every line ends with CRLF.
+  private static String toCrlfLines(String output) {
+    StringBuilder builder = new StringBuilder(output.length() + 16);
+    int length = output.length();
+    int lineStart = 0;
+    for (int i = 0; i < length; i++) {
+      char c = output.charAt(i);
+      if (c == '\n' || c == '\r') {
+        builder.append(output, lineStart, i).append("\r\n");
+        if (c == '\r' && i + 1 < length && output.charAt(i + 1) == '\n') {
+          i++;
+        }
+        lineStart = i + 1;
+      }
+    }
+    if (lineStart < length) {
+      builder.append(output, lineStart, length).append("\r\n");
+    }
+    return builder.toString();
+  }
+
+  @ReactMethod
+  public void startShell(final String key, final String ptyType, final Callback callback) {
+    startShellWithOptions(ptyType, null, key, callback);
+  }
+
+  /**
+   * Starts the shell used by writeToShell and closeShell, replacing the
+   * previous one. Output is sent as Shell events in frames: output is
+   * collected for up to frameMs (default 16) or maxBatchBytes (default 64 KiB)
+   * after the first byte arrives, then sent as one event. The callback
+   * receives the channel id.
+   *
+   * The terminal is set up from cols and rows (plus width and height in
+   * pixels), modes (terminal modes by RFC 4254 name) and env (environment
+   * variables; most servers only accept the ones listed in AcceptEnv).
+   */
+  @ReactMethod
+  public void startShellWithOptions(final String ptyType, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
       public void run() {
+        final SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
-          client._dataOutputStream.writeBytes(str);
-          client._dataOutputStream.flush();
-          callback.invoke();
+          ShellOptions shell = ShellOptions.parse(options);
+          ChannelHandle previous = client.defaultShell();
+          if (previous != null) {
+            previous.close();
+          }
+          ChannelHandle handle = openShellChannel(client, ptyType, shell, key);
+          client._shellId = handle.id;
+          callback.invoke(null, handle.id);
+        } catch (JSchException error) {
+          Log.e(LOGTAG, "Error starting shell: " + error.getMessage());
+          callback.invoke(error.getMessage());
         } catch (IOException error) {
-          Log.e(LOGTAG, "Error writing to shell:" + error.getMessage());
+          Log.e(LOGTAG, "Error starting shell: " + error.getMessage());
           callback.invoke(error.getMessage());
         } catch (Exception error) {
-          Log.e(LOGTAG, "Error writing to shell:" + error.getMessage());
+          Log.e(LOGTAG, "Error sarting shell: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
+  /**
+   * Opens one more shell on the session of the client, next to any other shell
+   * or exec channel. Takes the same options as startShellWithOptions. The
+   * callback receives the channel id, which tags its Shell events and is used
+   * with writeToChannel and closeChannel.
+   */
   @ReactMethod
-  public void closeShell(final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+  public void openShell(final String ptyType, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
-              callback.invoke("Client is null");
-              return;
-          }
-          if (client._channel != null) {
-              client._channel.disconnect();
-          }
-
-          if (client._dataOutputStream != null) {
-              client._dataOutputStream.flush();
-              client._dataOutputStream.close();
-          }
-
-          if (client._bufferedReader != null) {
-              client._bufferedReader.close();
+              throw new Exception("client is null");
           }
-          
-          callback.invoke();
-        } catch (IOException error) {
-          Log.e(LOGTAG, "Error closing shell:" + error.getMessage());
-          callback.invoke(error.getMessage());
+          callback.invoke(null, openShellChannel(client, ptyType, ShellOptions.parse(options), key).id);
         } catch (Exception error) {
-          Log.e(LOGTAG, "Error closing shell:" + error.getMessage());
+          Log.e(LOGTAG, "Error opening shell: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
+  /**
+   * Starts a command on its own exec channel and returns its channel id right
+   * away. Output is sent as ExecOutput events tagged with the channel id, input
+   * can be sent with writeToChannel, and a ChannelClosed event carries the exit
+   * status. Any number of commands can run at once on one session.
+   */
   @ReactMethod
-  public void connectSFTP(final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+  public void startExec(final String command, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
       public void run() {
+        final SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
-          ChannelSftp channelSftp = (ChannelSftp) client._session.openChannel("sftp");
-          channelSftp.connect();
-          client._sftpSession = channelSftp;
-          callback.invoke();
+          String id = client.nextChannelId();
+          ChannelExec channel = (ChannelExec) client._session.openChannel("exec");
+          channel.setCommand(command);
+          ExecEventStream stdout = new ExecEventStream(key, "stdout", id);
+          ExecEventStream stderr = new ExecEventStream(key, "stderr", id);
+          ExecChannelEnd end = new ExecChannelEnd(client, key, stdout, stderr);
+          channel.setOutputStream(stdout, true);
+          channel.setExtOutputStream(new ChannelCloseSignal(stderr, end), false);
+          ShellWriter writer = new ShellWriter(channel.getOutputStream());
+          channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+
+          ChannelHandle handle = new ChannelHandle(id, "exec", channel, writer);
+          client._channels.put(id, handle);
+          executor.startStream(writer);
+          callback.invoke(null, id);
+          end.started(handle);
         } catch (JSchException error) {
-          Log.e(LOGTAG, "Error connecting SFTP:" + error.getMessage());
+          Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
         } catch (Exception error) {
-          Log.e(LOGTAG, "Error connecting SFTP:" + error.getMessage());
+          Log.e(LOGTAG, "Error executing command: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
+  /**
+   * Changes the terminal size of a shell. The server gets a window-change
+   * request, so full-screen programs redraw for the new size. A null channel
+   * id designates the shell started by startShell.
+   */
   @ReactMethod
-  public void disconnectSFTP(final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+  public void resizeShell(@Nullable final String channelId, final int cols, final int rows, final int width,
+                          final int height, final String key, final Callback callback) {
+    executor.submit(new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
-              callback.invoke("Client is null");
-              return;
+              throw new Exception("client is null");
           }
-          if (client._sftpSession != null) {
-            client._sftpSession.disconnect();
-            client._sftpSession = null;
+          ChannelHandle handle = channelId == null ? client.defaultShell() : client._channels.get(channelId);
+          if (handle == null || !(handle.channel instanceof ChannelShell)) {
+            throw new Exception(channelId == null ? "Shell is not started" : "Channel " + channelId + " is not a shell");
           }
+          ((ChannelShell) handle.channel).setPtySize(cols, rows, width, height);
           callback.invoke();
         } catch (Exception error) {
-          Log.e(LOGTAG, "Error disconnecting SFTP:" + error.getMessage());
+          Log.e(LOGTAG, "Error resizing shell: " + error.getMessage());
           callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
-  @ReactMethod
-  public void sftpLs(final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
-      public void run() {
-        try {
-          SSHClient client = clientPool.get(key);
-        if (client == null) {
-            throw new Exception("client is null");
-        }
-          ChannelSftp channelSftp = client._sftpSession;
-
-          Vector<LsEntry> files = channelSftp.ls(path);
-          WritableArray response = new WritableNativeArray();
-
-          for (LsEntry file: files) {
-            int isDir = 0;
-            String filename = file.getFilename();
-            if (filename.trim().equals(".") || filename.trim().equals(".."))
-              continue;
+  /**
+   * Shell options read from the map given to startShellWithOptions or
+   * openShell. Parsing checks the terminal modes and environment, so bad
+   * options are rejected before any channel is touched.
+   */
+  private static class ShellOptions {
+    int frameMs = ShellReader.DEFAULT_FRAME_MS;
+    int maxBatchBytes = ShellReader.DEFAULT_MAX_BATCH_BYTES;
+    boolean sized = false;
+    int cols;
+    int rows;
+    int width = 0;
+    int height = 0;
+    @Nullable byte[] modes = null;
+    final Map<String, String> env = new LinkedHashMap<>();
+
+    static ShellOptions parse(@Nullable ReadableMap options) {
+      ShellOptions shell = new ShellOptions();
+      if (options == null) {
+        return shell;
+      }
+      if (options.hasKey("frameMs")) {
+        shell.frameMs = options.getInt("frameMs");
+      }
+      if (options.hasKey("maxBatchBytes")) {
+        shell.maxBatchBytes = options.getInt("maxBatchBytes");
+      }
+      if (options.hasKey("cols") && options.hasKey("rows")) {
+        shell.sized = true;
+        shell.cols = options.getInt("cols");
+        shell.rows = options.getInt("rows");
+        shell.width = options.hasKey("width") ? options.getInt("width") : 0;
+        shell.height = options.hasKey("height") ? options.getInt("height") : 0;
+      }
+      if (options.hasKey("modes")) {
+        shell.modes = TerminalModes.encode(options.getMap("modes"));
+      }
+      if (options.hasKey("env")) {
+        ReadableMap env = options.getMap("env");
+        ReadableMapKeySetIterator names = env.keySetIterator();
+        while (names.hasNextKey()) {
+          String name = names.nextKey();
+          shell.env.put(name, env.getString(name));
+        }
+      }
+      return shell;
+    }
+  }
+
+  // Opens a shell channel and starts its reader and writer.
+  private ChannelHandle openShellChannel(final SSHClient client, String ptyType, ShellOptions options,
+                                         final String key) throws JSchException, IOException {
+    final String id = client.nextChannelId();
+    ChannelShell channel = (ChannelShell) client._session.openChannel("shell");
+    channel.setPtyType(ptyType);
+    if (options.sized) {
+      channel.setPtySize(options.cols, options.rows, options.width, options.height);
+    }
+    if (options.modes != null) {
+      channel.setTerminalMode(options.modes);
+    }
+    for (Map.Entry<String, String> variable : options.env.entrySet()) {
+      channel.setEnv(variable.getKey(), variable.getValue());
+    }
+    channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+
+    InputStream in = channel.getInputStream();
+    final ChannelHandle handle = new ChannelHandle(id, "shell", channel, new ShellWriter(channel.getOutputStream()));
+    handle.reader = new ShellReader(in, options.frameMs, options.maxBatchBytes, new ShellReader.Sink() {
+      public void output(String text) {
+        WritableMap map = Arguments.createMap();
+        map.putString("name", "Shell");
+        map.putString("key", key);
+        map.putString("channelId", id);
+        map.putString("value", text);
+        sendEvent(reactContext, "Shell", map);
+      }
+    });
+    client._channels.put(id, handle);
+    executor.startStream(handle.writer);
+    executor.startStream(new Runnable() {
+      public void run() {
+        handle.reader.run();
+        channelClosed(client, handle, key);
+      }
+    });
+    return handle;
+  }
+
+  // Forgets a channel that has ended and tells JavaScript.
+  /**
+   * Ends an exec channel started by startExec once JSch has closed it, which
+   * it signals by closing the channel's stderr stream. The ChannelClosed event
+   * waits until the channel id has been handed to JavaScript.
+   */
+  private class ExecChannelEnd implements Runnable {
+    private final SSHClient client;
+    private final String key;
+    private final ExecEventStream stdout;
+    private final ExecEventStream stderr;
+    private ChannelHandle handle = null;
+    private boolean closed = false;
+
+    ExecChannelEnd(SSHClient client, String key, ExecEventStream stdout, ExecEventStream stderr) {
+      this.client = client;
+      this.key = key;
+      this.stdout = stdout;
+      this.stderr = stderr;
+    }
+
+    // Called by JSch on the thread that closed the channel.
+    public void run() {
+      synchronized (this) {
+        closed = true;
+        if (handle == null) {
+          return;
+        }
+      }
+      finish();
+    }
+
+    void started(ChannelHandle handle) {
+      synchronized (this) {
+        this.handle = handle;
+        if (!closed) {
+          return;
+        }
+      }
+      finish();
+    }
+
+    // run() is called on the session thread of JSch, which must not wait for
+    // the writer to stop: every channel of the session would stall meanwhile.
+    private void finish() {
+      executor.startStream(new Runnable() {
+        public void run() {
+          stdout.close();
+          stderr.close();
+          channelClosed(client, handle, key);
+        }
+      });
+    }
+  }
+
+  private void channelClosed(SSHClient client, ChannelHandle handle, String key) {
+    // Fails any further input.
+    handle.writer.close();
+    handle.channel.disconnect();
+    client._channels.remove(handle.id);
+    WritableMap map = Arguments.createMap();
+    map.putString("name", "ChannelClosed");
+    map.putString("key", key);
+    map.putString("channelId", handle.id);
+    map.putString("value", handle.type);
+    map.putInt("exitStatus", handle.channel.getExitStatus());
+    sendEvent(reactContext, "ChannelClosed", map);
+  }
+
+  /**
+   * Queues input for the shell writer without going through the client lane,
+   * so keystrokes are not held up behind other operations of the client.
+   */
+  @ReactMethod
+  public void writeToShell(final String str, final String key, final Callback callback) {
+    writeToChannel(null, str, key, callback);
+  }
+
+  /**
+   * Sends input to a shell or exec channel. A null channel id designates the
+   * shell started by startShell.
+   */
+  @ReactMethod
+  public void writeToChannel(@Nullable final String channelId, final String str, final String key, final Callback callback) {
+    SSHClient client = registry.acquire(key);
+    try {
+      if (client == null) {
+        callback.invoke("client is null");
+        return;
+      }
+      ChannelHandle handle = channelId == null ? client.defaultShell() : client._channels.get(channelId);
+      if (handle == null || !handle.writer.write(str, callback)) {
+        Log.e(LOGTAG, "Error writing to shell: channel is not open");
+        callback.invoke(channelId == null ? "Shell is not started" : "Channel " + channelId + " is not open");
+      }
+    } finally {
+      registry.release(client);
+    }
+  }
+
+  @ReactMethod
+  public void closeShell(final String key, final Callback callback) {
+    closeChannel(null, key, callback);
+  }
+
+  /**
+   * Closes a shell or exec channel. A null channel id designates the shell
+   * started by startShell. Closing a channel that has already ended succeeds.
+   */
+  @ReactMethod
+  public void closeChannel(@Nullable final String channelId, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              callback.invoke("Client is null");
+              return;
+          }
+          ChannelHandle handle = channelId == null ? client.defaultShell() : client._channels.get(channelId);
+          if (handle != null) {
+            handle.close();
+            if (handle.id.equals(client._shellId)) {
+              client._shellId = null;
+            }
+          }
+          callback.invoke();
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Error closing shell:" + error.getMessage());
+          callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  @ReactMethod
+  public void connectSFTP(final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              throw new Exception("client is null");
+          }
+          ChannelSftp channelSftp = (ChannelSftp) client._session.openChannel("sftp");
+          channelSftp.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+          client._sftpSession = channelSftp;
+          client._metadataCache = metadataCacheEnabled
+            ? new MetadataCache(metadataCacheTtlMs, metadataCacheMaxEntries) : null;
+          callback.invoke();
+        } catch (JSchException error) {
+          Log.e(LOGTAG, "Error connecting SFTP:" + error.getMessage());
+          callback.invoke(error.getMessage());
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Error connecting SFTP:" + error.getMessage());
+          callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  @ReactMethod
+  public void disconnectSFTP(final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              callback.invoke("Client is null");
+              return;
+          }
+          if (client._sftpSession != null) {
+            client._sftpSession.disconnect();
+            client._sftpSession = null;
+          }
+          client._metadataCache = null;
+          callback.invoke();
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Error disconnecting SFTP:" + error.getMessage());
+          callback.invoke(error.getMessage());
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
 
-            if (file.getAttrs().isDir()) {
-              isDir = 1;
-              filename += '/';
+  @ReactMethod
+  public void sftpLs(final String path, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+        if (client == null) {
+            throw new Exception("client is null");
+        }
+          ChannelSftp channelSftp = client._sftpSession;
+          MetadataCache cache = client._metadataCache;
+          String cacheKey = cache != null ? MetadataCache.normalize(path, channelSftp.pwd()) : null;
+
+          final WritableArray response = new WritableNativeArray();
+          final SftpEntries entries = new SftpEntries();
+          List<MetadataCache.Entry> listing = cache != null ? cache.getListing(cacheKey) : null;
+          if (listing != null) {
+            for (MetadataCache.Entry entry : listing) {
+              response.pushMap(entries.toMap(entry.filename, entry.attrs));
+            }
+            callback.invoke(null, response);
+            return;
+          }
+
+          final List<MetadataCache.Entry> fetched = cache != null ? new ArrayList<MetadataCache.Entry>() : null;
+          channelSftp.ls(path, new ChannelSftp.LsEntrySelector() {
+            public int select(LsEntry file) {
+              String filename = file.getFilename();
+              if (!filename.equals(".") && !filename.equals("..")) {
+                response.pushMap(entries.toMap(filename, file.getAttrs()));
+                if (fetched != null) {
+                  fetched.add(new MetadataCache.Entry(filename, file.getAttrs()));
+                }
+              }
+              return CONTINUE;
             }
-            String str = String.format(Locale.getDefault(),
-              "{\"filename\":\"%s\"," +
-              "\"isDirectory\":%d," +
-              "\"modificationDate\":\"%s\"," +
-              "\"lastAccess\":\"%s\"," +
-              "\"fileSize\":%d," +
-              "\"ownerUserID\":%d," +
-              "\"ownerGroupID\":%d," +
-              "\"permissions\":\"%s\"," +
-              "\"flags\":%d}",
-              filename,
-              isDir,
-              file.getAttrs().getMTime(),
-              file.getAttrs().getATime(),
-              file.getAttrs().getSize(),
-              file.getAttrs().getUId(),
-              file.getAttrs().getGId(),
-              file.getAttrs().getPermissions(),
-              file.getAttrs().getFlags()
-            );
-            response.pushString(str);
+          });
+          if (cache != null) {
+            cache.putListing(cacheKey, fetched);
           }
           callback.invoke(null, response);
         } catch (SftpException error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
           Log.e(LOGTAG, "Failed to list path " + path);
           callback.invoke("Failed to list path " + path);
         } catch (Exception error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
           Log.e(LOGTAG, "Failed to list path " + path);
           callback.invoke("Failed to list path " + path);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Returns the attributes of a remote path (following symbolic links), served
+   * from the metadata cache when possible.
+   */
+  @ReactMethod
+  public void sftpStat(final String path, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+            throw new Exception("client is null");
+          }
+          ChannelSftp channelSftp = client._sftpSession;
+          MetadataCache cache = client._metadataCache;
+          String absolute = MetadataCache.normalize(path, channelSftp.pwd());
+          SftpATTRS attrs = cache != null ? cache.getStat(absolute) : null;
+          if (attrs == null) {
+            attrs = channelSftp.stat(path);
+            if (cache != null) {
+              cache.putStat(absolute, attrs);
+            }
+          }
+          String name = absolute.substring(absolute.lastIndexOf('/') + 1);
+          callback.invoke(null, new SftpEntries().toMap(name, attrs));
+        } catch (Exception error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
+          Log.e(LOGTAG, "Failed to stat " + path + ": " + error.getMessage());
+          callback.invoke("Failed to stat " + path);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Removes a file or a directory with everything below it, over several SFTP
+   * channels. "RmProgress" events report the entries removed so far, at most
+   * every progress interval.
+   *
+   * Options: concurrency (SFTP channels used at once, default 4, at most 8).
+   * The callback receives {files, directories}, the numbers removed.
+   */
+  @ReactMethod
+  public void sftpRmRecursive(final String path, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+            throw new Exception("client is null");
+          }
+          RemoteTree tree = new RemoteTree(client._session, executor);
+          if (options != null && options.hasKey("concurrency")) {
+            tree.concurrency = options.getInt("concurrency");
+          }
+          invalidateMetadata(client, path);
+          final long interval = progressIntervalMs * 1000000;
+          try {
+            tree.remove(path, new RemoteTree.Progress() {
+              private long last = System.nanoTime();
+
+              public void report(long files, long directories) {
+                long now = System.nanoTime();
+                synchronized (this) {
+                  if (now - last < interval) {
+                    return;
+                  }
+                  last = now;
+                }
+                sendRmProgress(key, files, directories);
+              }
+            });
+          } finally {
+            sendRmProgress(key, tree.filesRemoved.get(), tree.directoriesRemoved.get());
+          }
+
+          WritableMap result = Arguments.createMap();
+          result.putDouble("files", tree.filesRemoved.get());
+          result.putDouble("directories", tree.directoriesRemoved.get());
+          callback.invoke(null, result);
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to remove " + path + ": " + error.getMessage());
+          callback.invoke("Failed to remove " + path);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  private void sendRmProgress(String key, long files, long directories) {
+    WritableMap map = Arguments.createMap();
+    map.putString("name", "RmProgress");
+    map.putString("key", key);
+    map.putString("value", Long.toString(files + directories));
+    map.putDouble("files", files);
+    map.putDouble("directories", directories);
+    sendEvent(reactContext, "RmProgress", map);
+  }
+
+  /**
+   * Creates a directory and any missing parent, like mkdir -p. The callback
+   * receives the number of directories created.
+   */
+  @ReactMethod
+  public void sftpMkdirs(final String path, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+            throw new Exception("client is null");
+          }
+          int created = RemoteTree.mkdirs(client._sftpSession, path);
+          MetadataCache cache = client._metadataCache;
+          if (cache != null) {
+            // Every created directory changes the listing of its parent.
+            String dir = MetadataCache.normalize(path, client._sftpSession.pwd());
+            for (int i = 0; i < created && dir != null; i++) {
+              cache.invalidate(dir);
+              dir = MetadataCache.parent(dir);
+            }
+          }
+          callback.invoke(null, created);
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to create directory " + path + ": " + error.getMessage());
+          callback.invoke("Failed to create directory " + path);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Runs a list of SFTP operations in one call. Each operation is a map with op
+   * ("rm", "rmdir", "mkdir", "rename", "chmod" or "stat"), path, and newPath
+   * or permissions where needed. The callback receives one result per
+   * operation, in order.
+   *
+   * Options: concurrency (number of SFTP channels used at once, default 1; only
+   * for operations that do not depend on each other) and stopOnError.
+   */
+  @ReactMethod
+  public void sftpBatch(final ReadableArray operations, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+            throw new Exception("client is null");
+          }
+          SftpBatch batch = new SftpBatch(client._session, client._sftpSession, client._metadataCache);
+          if (options != null && options.hasKey("concurrency")) {
+            batch.concurrency = Math.max(1, options.getInt("concurrency"));
+          }
+          if (options != null && options.hasKey("stopOnError")) {
+            batch.stopOnError = options.getBoolean("stopOnError");
+          }
+          callback.invoke(null, batch.run(operations, executor));
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to run batch: " + error.getMessage());
+          callback.invoke("Failed to run batch: " + error.getMessage());
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Configures the cache of directory listings and attributes kept per SFTP
+   * session, for sessions opened afterwards. It is off until enabled here.
+   * Changes made through the same client invalidate it; changes made by others
+   * show up once entries expire after ttlMs.
+   */
+  @ReactMethod
+  public void setSftpCache(final boolean enabled, final double ttlMs, final double maxEntries) {
+    metadataCacheEnabled = enabled;
+    metadataCacheTtlMs = Math.max(0, (long) ttlMs);
+    metadataCacheMaxEntries = Math.max(1, (int) maxEntries);
+  }
+
+  /**
+   * Configures the cache of decrypted private keys used by authenticateWithKey.
+   * Disabling it disposes the keys it holds.
+   */
+  @ReactMethod
+  public void setIdentityCache(final boolean enabled, final double ttlMs, final double maxEntries) {
+    identities.configure(enabled, (long) ttlMs, (int) maxEntries);
+  }
+
+  @ReactMethod
+  public void clearIdentityCache() {
+    identities.clear();
+  }
+
+  @ReactMethod
+  public void getIdentityCacheStats(final Callback callback) {
+    IdentityCache.Stats stats = identities.getStats();
+    WritableMap map = Arguments.createMap();
+    map.putDouble("hits", stats.hits);
+    map.putDouble("misses", stats.misses);
+    map.putDouble("evictions", stats.evictions);
+    map.putInt("entries", stats.entries);
+    callback.invoke(null, map);
+  }
+
+  // Drops the cached metadata of paths about to be changed by this client.
+  private static void invalidateMetadata(SSHClient client, String... paths) throws SftpException {
+    MetadataCache cache = client._metadataCache;
+    if (cache == null) {
+      return;
+    }
+    String cwd = client._sftpSession.pwd();
+    for (String path : paths) {
+      cache.invalidate(MetadataCache.normalize(path, cwd));
+    }
+  }
+
+  /**
+   * Lists a directory in pages sent as "LsPage" events, so huge directories
+   * are never held in memory at once.
+   *
+   * Options: pageSize (entries per event, default 500), glob (on the file
+   * name), type ("file", "directory" or "link"), modifiedAfter and
+   * modifiedBefore (epoch seconds). Entries are filtered before they are
+   * converted. The callback receives {pages, matched, scanned, cancelled} once
+   * the last page has been sent; sftpCancelLs stops the listing early.
+   */
+  @ReactMethod
+  public void sftpLsStream(final String path, final ReadableMap options, final String key, final Callback callback) {
+    // Taken now, so that a cancel issued while the listing is queued counts.
+    SSHClient requester = registry.peek(key);
+    final int cancels = requester != null ? requester._lsCancels.get() : 0;
+    executor.submit(key, new Runnable() {
+      public void run() {
+        final SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+            throw new Exception("client is null");
+          }
+          final int pageSize = options != null && options.hasKey("pageSize")
+            ? Math.max(1, options.getInt("pageSize")) : DEFAULT_LS_PAGE_SIZE;
+          final LsFilter filter = new LsFilter();
+          if (options != null && options.hasKey("glob")) {
+            filter.glob(options.getString("glob"));
+          }
+          if (options != null && options.hasKey("type")) {
+            filter.type(options.getString("type"));
+          }
+          filter.modified(
+            options != null && options.hasKey("modifiedAfter") ? (long) options.getDouble("modifiedAfter") : Long.MIN_VALUE,
+            options != null && options.hasKey("modifiedBefore") ? (long) options.getDouble("modifiedBefore") : Long.MAX_VALUE);
+
+          final SftpEntries entries = new SftpEntries();
+          final int[] counts = new int[3]; // pages, matched, scanned
+          final WritableArray[] page = { new WritableNativeArray() };
+          final int[] pageFill = { 0 };
+          client._sftpSession.ls(path, new ChannelSftp.LsEntrySelector() {
+            public int select(LsEntry file) {
+              if (client._lsCancels.get() != cancels) {
+                return BREAK;
+              }
+              String filename = file.getFilename();
+              if (filename.equals(".") || filename.equals("..")) {
+                return CONTINUE;
+              }
+              counts[2]++;
+              if (!filter.matches(filename, file.getAttrs())) {
+                return CONTINUE;
+              }
+              counts[1]++;
+              page[0].pushMap(entries.toMap(filename, file.getAttrs()));
+              if (++pageFill[0] == pageSize) {
+                sendLsPage(key, page[0], counts[0]++, false);
+                page[0] = new WritableNativeArray();
+                pageFill[0] = 0;
+              }
+              return CONTINUE;
+            }
+          });
+          boolean cancelled = client._lsCancels.get() != cancels;
+          if (!cancelled) {
+            sendLsPage(key, page[0], counts[0]++, true);
+          }
+
+          WritableMap result = Arguments.createMap();
+          result.putInt("pages", counts[0]);
+          result.putInt("matched", counts[1]);
+          result.putInt("scanned", counts[2]);
+          result.putBoolean("cancelled", cancelled);
+          callback.invoke(null, result);
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to list path " + path + ": " + error.getMessage());
+          callback.invoke("Failed to list path " + path);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
+  }
+
+  @ReactMethod
+  public void sftpCancelLs(final String key) {
+    SSHClient client = registry.peek(key);
+    if (client != null) {
+        client._lsCancels.incrementAndGet();
+    }
+  }
+
+  private void sendLsPage(String key, WritableArray entries, int page, boolean last) {
+    WritableMap map = Arguments.createMap();
+    map.putString("name", "LsPage");
+    map.putString("key", key);
+    map.putArray("value", entries);
+    map.putInt("page", page);
+    map.putBoolean("last", last);
+    sendEvent(reactContext, "LsPage", map);
   }
 
   @ReactMethod
   public void sftpRename(final String oldPath, final String newPath, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           ChannelSftp channelSftp = client._sftpSession;
+          invalidateMetadata(client, oldPath, newPath);
           channelSftp.rename(oldPath, newPath);
           callback.invoke();
         } catch (SftpException error) {
@@ -965,21 +1994,24 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Failed to rename path " + oldPath);
           callback.invoke("Failed to rename path " + oldPath);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpMkdir(final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           ChannelSftp channelSftp = client._sftpSession;
+          invalidateMetadata(client, path);
           channelSftp.mkdir(path);
           callback.invoke();
         } catch (SftpException error) {
@@ -988,21 +2020,24 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Failed to create directory " + path);
           callback.invoke("Failed to create directory " + path);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpRm(final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           ChannelSftp channelSftp = client._sftpSession;
+          invalidateMetadata(client, path);
           channelSftp.rm(path);
           callback.invoke();
         } catch (SftpException error) {
@@ -1011,21 +2046,24 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Failed to remove " + path);
           callback.invoke("Failed to remove " + path);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpRmdir(final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           ChannelSftp channelSftp = client._sftpSession;
+          invalidateMetadata(client, path);
           channelSftp.rmdir(path);
           callback.invoke();
         } catch (SftpException error) {
@@ -1034,21 +2072,24 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Failed to remove " + path);
           callback.invoke("Failed to remove " + path);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpChmod(final String path, final int permissions, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           ChannelSftp channelSftp = client._sftpSession;
+          invalidateMetadata(client, path);
           channelSftp.chmod(permissions, path);
           callback.invoke();
         } catch (SftpException error) {
@@ -1059,47 +2100,355 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
           final String msg = "Failed to chmod " + path + " with permissions " + permissions;
           Log.e(LOGTAG, msg);
           callback.invoke(msg);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpDownload(final String filePath, final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           client._downloadContinue = true;
           ChannelSftp channelSftp = client._sftpSession;
-          channelSftp.get(filePath, path, new progressMonitor(key, "DownloadProgress"));
+          channelSftp.get(filePath, path, progressMonitor(client, key, "DownloadProgress"));
           callback.invoke(null, path + '/' + (new File(filePath)).getName());
         } catch (SftpException error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
           Log.e(LOGTAG, "Failed to download " + filePath);
           callback.invoke("Failed to download " + filePath);
         } catch (Exception error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
           Log.e(LOGTAG, "Failed to download " + filePath);
           callback.invoke("Failed to download " + filePath);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Downloads a file over several SFTP channels in parallel.
+   *
+   * Options: channels (default 4, at most 8), chunkSize (bytes per range,
+   * default 4 MiB), bulkRequests (outstanding reads per channel, default 32)
+   * and verify (compare the SHA-256 of the result with sha256sum on the server)
+   * and resume (default true: keep the ranges already downloaded by an
+   * interrupted attempt, as long as the remote file is unchanged). Progress
+   * events carry the throughput in MB/s.
+   */
+  @ReactMethod
+  public void sftpDownloadParallel(final String filePath, final String path, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        final SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              throw new Exception("client is null");
+          }
+          client._downloadContinue = true;
+          File destination = new File(path, (new File(filePath)).getName());
+          ParallelDownload download = new ParallelDownload(client._session, executor, filePath, destination);
+          if (options != null && options.hasKey("channels")) {
+            download.channels = Math.max(1, options.getInt("channels"));
+          }
+          if (options != null && options.hasKey("chunkSize")) {
+            download.chunkSize = Math.max(32 * 1024, options.getInt("chunkSize"));
+          }
+          if (options != null && options.hasKey("bulkRequests")) {
+            download.bulkRequests = Math.max(1, options.getInt("bulkRequests"));
+          }
+          if (options != null && options.hasKey("resume")) {
+            download.resume = options.getBoolean("resume");
+          }
+          boolean verify = options != null && options.hasKey("verify") && options.getBoolean("verify");
+
+          long start = System.nanoTime();
+          SftpATTRS attrs = download.remoteStat();
+          long size = attrs.getSize();
+          download.run(attrs, new TransferProgress(size) {
+            boolean isCancelled() {
+              return !client._downloadContinue;
+            }
+
+            void report(long transferred, long total, long percent, double bytesPerSecond,
+                        double averageBytesPerSecond, double etaSeconds) {
+              sendTransferProgress("DownloadProgress", key, transferred, total, percent, bytesPerSecond, averageBytesPerSecond, etaSeconds);
+            }
+          }.throttle(progressIntervalMs, progressMinBytes));
+          double seconds = (System.nanoTime() - start) / 1e9;
+
+          WritableMap result = Arguments.createMap();
+          result.putString("path", destination.getPath());
+          result.putDouble("size", size);
+          result.putDouble("resumed", download.resumedBytes);
+          result.putDouble("mbps", seconds > 0 ? (size - download.resumedBytes) / seconds / 1e6 : 0);
+          if (verify) {
+            String localDigest = ParallelDownload.sha256(destination);
+            String remoteDigest = remoteSha256(client._session, filePath);
+            if (remoteDigest != null && !remoteDigest.equalsIgnoreCase(localDigest)) {
+              destination.delete();
+              throw new Exception("Checksum mismatch");
+            }
+            result.putString("sha256", localDigest);
+            result.putBoolean("verified", remoteDigest != null);
+          }
+          callback.invoke(null, result);
+        } catch (Exception error) {
+          if (replayAfterReconnect(client, this, callback)) {
+            return;
+          }
+          Log.e(LOGTAG, "Failed to download " + filePath + ": " + error.getMessage());
+          callback.invoke("Failed to download " + filePath);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  /**
+   * Uploads a file over several SFTP channels in parallel, into a temporary
+   * file that is renamed over the destination once complete.
+   *
+   * Options: channels (default 4, at most 8), chunkSize (bytes per range,
+   * default 4 MiB) and resume (default true: keep the ranges already uploaded
+   * by an interrupted attempt, as long as the local file is unchanged). The
+   * journal of an interrupted upload is kept in the cache directory of the app.
+   */
+  @ReactMethod
+  public void sftpUploadParallel(final String filePath, final String path, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        final SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              throw new Exception("client is null");
+          }
+          client._uploadContinue = true;
+          File source = new File(filePath);
+          String destination = path + '/' + source.getName();
+          File journal = TransferJournal.locate(new File(reactContext.getCacheDir(), TRANSFER_JOURNAL_DIR),
+            client._username, client._host, String.valueOf(client._port), destination);
+          ParallelUpload upload = new ParallelUpload(client._session, executor, source, destination, journal);
+          if (options != null && options.hasKey("channels")) {
+            upload.channels = Math.max(1, options.getInt("channels"));
+          }
+          if (options != null && options.hasKey("chunkSize")) {
+            upload.chunkSize = Math.max(32 * 1024, options.getInt("chunkSize"));
+          }
+          if (options != null && options.hasKey("resume")) {
+            upload.resume = options.getBoolean("resume");
+          }
+
+          long start = System.nanoTime();
+          invalidateMetadata(client, destination, destination + ".part");
+          upload.run(new TransferProgress(source.length()) {
+            boolean isCancelled() {
+              return !client._uploadContinue;
+            }
+
+            void report(long transferred, long total, long percent, double bytesPerSecond,
+                        double averageBytesPerSecond, double etaSeconds) {
+              sendTransferProgress("UploadProgress", key, transferred, total, percent, bytesPerSecond, averageBytesPerSecond, etaSeconds);
+            }
+          }.throttle(progressIntervalMs, progressMinBytes));
+          double seconds = (System.nanoTime() - start) / 1e9;
+
+          WritableMap result = Arguments.createMap();
+          result.putDouble("size", source.length());
+          result.putDouble("resumed", upload.resumedBytes);
+          result.putDouble("mbps", seconds > 0 ? (source.length() - upload.resumedBytes) / seconds / 1e6 : 0);
+          callback.invoke(null, result);
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to upload " + filePath + ": " + error.getMessage());
+          callback.invoke("Failed to upload " + filePath);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
+  }
+
+  /**
+   * Mirrors a directory tree in one direction: "upload" (localPath to
+   * remotePath, the default) or "download". Only files missing or differing in
+   * size or mtime are sent, by a pool of workers.
+   *
+   * Options: direction, workers (default 4) and checksum (compare files of
+   * equal size by SHA-256 rather than mtime, hashing remote files with
+   * sha256sum). Progress is reported as "UploadProgress" or "DownloadProgress"
+   * over the bytes to send, and the matching cancel method stops the sync. The
+   * callback receives the numbers of files and bytes sent and skipped.
+   */
+  @ReactMethod
+  public void sftpSync(final String localPath, final String remotePath, final ReadableMap options, final String key, final Callback callback) {
+    executor.submit(key, new Runnable() {
+      public void run() {
+        final SSHClient client = registry.acquire(key);
+        try {
+          if (client == null) {
+              throw new Exception("client is null");
+          }
+          final boolean upload = options == null || !options.hasKey("direction")
+            || !"download".equals(options.getString("direction"));
+          DirectorySync sync = new DirectorySync(client._session, executor, new File(localPath), remotePath, upload);
+          if (options != null && options.hasKey("workers")) {
+            sync.workers = Math.max(1, options.getInt("workers"));
+          }
+          if (options != null && options.hasKey("checksum") && options.getBoolean("checksum")) {
+            sync.hasher = new DirectorySync.RemoteHasher() {
+              public Map<String, String> sha256(List<String> paths) throws Exception {
+                return remoteSha256(client._session, paths);
+              }
+            };
+          }
+          if (upload) {
+            client._uploadContinue = true;
+            invalidateMetadata(client, remotePath);
+          } else {
+            client._downloadContinue = true;
+          }
+
+          final String event = upload ? "UploadProgress" : "DownloadProgress";
+          long start = System.nanoTime();
+          DirectorySync.Summary summary = sync.run(new DirectorySync.ProgressFactory() {
+            public TransferProgress create(long total) {
+              return new TransferProgress(total) {
+                boolean isCancelled() {
+                  return upload ? !client._uploadContinue : !client._downloadContinue;
+                }
+
+                void report(long transferred, long total, long percent, double bytesPerSecond,
+                            double averageBytesPerSecond, double etaSeconds) {
+                  sendTransferProgress(event, key, transferred, total, percent, bytesPerSecond, averageBytesPerSecond, etaSeconds);
+                }
+              }.throttle(progressIntervalMs, progressMinBytes);
+            }
+          });
+          double seconds = (System.nanoTime() - start) / 1e9;
+
+          WritableMap result = Arguments.createMap();
+          result.putInt("filesScanned", summary.filesScanned);
+          result.putInt("filesSent", summary.filesSent);
+          result.putInt("filesSkipped", summary.filesSkipped);
+          result.putInt("directoriesCreated", summary.directoriesCreated);
+          result.putDouble("bytesSent", summary.bytesSent);
+          result.putDouble("bytesSkipped", summary.bytesSkipped);
+          result.putDouble("seconds", seconds);
+          callback.invoke(null, result);
+        } catch (Exception error) {
+          Log.e(LOGTAG, "Failed to sync " + localPath + " with " + remotePath + ": " + error.getMessage());
+          callback.invoke("Failed to sync " + localPath + " with " + remotePath);
+        } finally {
+          registry.release(client);
+        }
+      }
+    }, callback);
+  }
+
+  // SHA-256 of remote files computed by sha256sum, a batch of paths per
+  // command. Files sha256sum cannot read, or whose names it has to escape,
+  // are left out.
+  private Map<String, String> remoteSha256(Session session, List<String> paths) throws Exception {
+    Map<String, String> hashes = new HashMap<>();
+    for (int from = 0; from < paths.size(); from += SHA256_BATCH) {
+      StringBuilder command = new StringBuilder("sha256sum --");
+      for (String path : paths.subList(from, Math.min(paths.size(), from + SHA256_BATCH))) {
+        command.append(' ').append(shellQuote(path));
+      }
+      CaptureBuffer output = new CaptureBuffer(DEFAULT_EXEC_MAX_CAPTURE);
+      runCommand(session, command.toString(), output, null);
+      for (String line : output.toUtf8String().split("\n")) {
+        // "<hash>  <path>", or "<hash> *<path>" in binary mode.
+        if (line.length() > 66 && line.charAt(64) == ' ') {
+          hashes.put(line.substring(66), line.substring(0, 64));
+        }
+      }
+    }
+    return hashes;
+  }
+
+  // SHA-256 of a remote file computed by sha256sum, or null if the server
+  // cannot run it.
+  @Nullable
+  private String remoteSha256(Session session, String path) {
+    try {
+      CaptureBuffer output = new CaptureBuffer(4096);
+      int exitStatus = runCommand(session, "sha256sum -- " + shellQuote(path), output, null);
+      String[] fields = output.toUtf8String().trim().split("\\s+");
+      if (exitStatus != 0 || fields.length == 0 || fields[0].length() != 64) {
+        return null;
+      }
+      return fields[0];
+    } catch (Exception error) {
+      Log.e(LOGTAG, "Cannot compute remote checksum: " + error.getMessage());
+      return null;
+    }
+  }
+
+  private static String shellQuote(String value) {
+    return "'" + value.replace("'", "'\\''") + "'";
+  }
+
+  private void sendTransferProgress(String name, String key, long transferred, long total, long percent,
+                                    double bytesPerSecond, double averageBytesPerSecond, double etaSeconds) {
+    WritableMap map = Arguments.createMap();
+    map.putString("name", name);
+    map.putString("key", key);
+    map.putString("value", Long.toString(percent));
+    map.putDouble("bytes", transferred);
+    map.putDouble("total", total);
+    map.putDouble("bytesPerSecond", bytesPerSecond);
+    map.putDouble("averageBytesPerSecond", averageBytesPerSecond);
+    map.putDouble("mbps", averageBytesPerSecond / 1e6);
+    map.putDouble("eta", etaSeconds);
+    sendEvent(reactContext, name, map);
+  }
+
+  /**
+   * Progress monitor for the single-channel transfers. The client is resolved
+   * once, so checking for cancellation on each chunk is a volatile read.
+   */
+  private TransferProgress progressMonitor(final SSHClient client, final String key, final String name) {
+    final boolean download = name.equals("DownloadProgress");
+    return new TransferProgress(0) {
+      boolean isCancelled() {
+        return download ? !client._downloadContinue : !client._uploadContinue;
+      }
+
+      void report(long transferred, long total, long percent, double bytesPerSecond,
+                  double averageBytesPerSecond, double etaSeconds) {
+        sendTransferProgress(name, key, transferred, total, percent, bytesPerSecond, averageBytesPerSecond, etaSeconds);
+      }
+    }.throttle(progressIntervalMs, progressMinBytes);
   }
 
   @ReactMethod
   public void sftpUpload(final String filePath, final String path, final String key, final Callback callback) {
-    new Thread(new Runnable()  {
+    executor.submit(key, new Runnable() {
       public void run() {
+        SSHClient client = registry.acquire(key);
         try {
-          SSHClient client = clientPool.get(key);
           if (client == null) {
               throw new Exception("client is null");
           }
           client._uploadContinue = true;
           ChannelSftp channelSftp = client._sftpSession;
-          channelSftp.put(filePath, path + '/' + (new File(filePath)).getName(), new progressMonitor(key, "UploadProgress"), ChannelSftp.OVERWRITE);
+          invalidateMetadata(client, path + '/' + (new File(filePath)).getName());
+          channelSftp.put(filePath, path + '/' + (new File(filePath)).getName(), progressMonitor(client, key, "UploadProgress"), ChannelSftp.OVERWRITE);
           callback.invoke();
         } catch (SftpException error) {
           Log.e(LOGTAG, "Failed to upload " + filePath);
@@ -1107,14 +2456,16 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
         } catch (Exception error) {
           Log.e(LOGTAG, "Failed to upload " + filePath);
           callback.invoke("Failed to upload " + filePath);
+        } finally {
+          registry.release(client);
         }
       }
-    }).start();
+    }, callback);
   }
 
   @ReactMethod
   public void sftpCancelDownload(final String key) {
-    SSHClient client = clientPool.get(key);
+    SSHClient client = registry.peek(key);
     if (client != null) {
         client._downloadContinue = false;
     }
@@ -1122,7 +2473,7 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
 
   @ReactMethod
   public void sftpCancelUpload(final String key) {
-    SSHClient client = clientPool.get(key);
+    SSHClient client = registry.peek(key);
     if (client != null) {
         client._uploadContinue = false;
     }
@@ -1130,23 +2481,40 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
 
   @ReactMethod
   public void disconnect(final String key, final Callback callback) {
-    new Thread(new Runnable() {
+    SSHClient client = registry.peek(key);
+    if (client != null && client._reconnector != null) {
+      // Do not keep the lane waiting for the next attempt.
+      client._reconnector.cancel();
+    }
+    // Nor waiting for a signature during authentication.
+    signBroker.cancel(key);
+    executor.submit(key, new Runnable() {
       public void run() {
         try {
-          SSHClient client = clientPool.get(key);
-          if (client != null) {
-            if (client._session != null) {
-              client._session.disconnect();
-            }
-            clientPool.remove(key);
-          }
+          registry.remove(key);
+          executor.removeLane(key);
           callback.invoke();
         } catch (Exception error) {
           Log.e(LOGTAG, "Error disconnecting:" + error.getMessage());
           callback.invoke(error.getMessage());
         }
       }
-    }).start();
+    }, callback);
+  }
+
+  @ReactMethod
+  public void getExecutorStats(final Callback callback) {
+    SshExecutor.Stats stats = executor.getStats();
+    WritableMap map = Arguments.createMap();
+    map.putDouble("threadsCreated", stats.threadsCreated);
+    map.putDouble("tasksExecuted", stats.tasksExecuted);
+    map.putDouble("tasksRejected", stats.tasksRejected);
+    map.putInt("activeThreads", stats.activeThreads);
+    map.putInt("queuedTasks", stats.queuedTasks);
+    map.putInt("lanes", stats.lanes);
+    map.putDouble("dispatchP50Micros", stats.dispatchP50Micros);
+    map.putDouble("dispatchP99Micros", stats.dispatchP99Micros);
+    callback.invoke(null, map);
   }
 
   @ReactMethod
@@ -1159,44 +2527,54 @@ public class RNSshClientModule extends ReactContextBaseJavaModule {
     // Keep: Required for RN built in Event Emitter Calls.
   }
 
-  private class progressMonitor implements SftpProgressMonitor {
-    private long max = 0;
-    private long count = 0;
-    private long downloadedPerc = 0;
-    private String key;
-    private String name;
+  /**
+   * Sends exec output to JavaScript as ExecOutput events, one per chunk
+   * received from the server.
+   */
+  private class ExecEventStream extends OutputStream {
+    private final String key;
+    private final String stream;
+    @Nullable private final String channelId;
+    private final Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+
+    ExecEventStream(String key, String stream) {
+      this(key, stream, null);
+    }
 
-    public progressMonitor(String key, String name) {
+    ExecEventStream(String key, String stream, @Nullable String channelId) {
       this.key = key;
-      this.name = name;
+      this.stream = stream;
+      this.channelId = channelId;
     }
 
-    public void init(int arg0, String arg1, String arg2, long arg3) {
-        this.max = arg3;
+    @Override
+    public void write(int b) {
+      write(new byte[] { (byte) b }, 0, 1);
     }
 
-    public boolean count(long arg0) {
-      SSHClient client = clientPool.get(this.key);
-      this.count += arg0;
-      long newPerc = this.count * 100 / max;
-      if(newPerc % 5 == 0 && newPerc > this.downloadedPerc) {
-        this.downloadedPerc = newPerc;
-        WritableMap map = Arguments.createMap();
-        map.putString("name", this.name);
-        map.putString("key", this.key);
-        map.putString("value", Long.toString(this.downloadedPerc));
-        sendEvent(reactContext, this.name, map);
-      }
-      boolean con;
-      if (this.name.equals("DownloadProgress")) {
-        con = client._downloadContinue;
-      } else {
-        con = client._uploadContinue;
-      }
-      return con;
+    @Override
+    public void write(byte[] b, int off, int len) {
+      emit(decoder.decode(b, off, len));
+    }
+
+    @Override
+    public void close() {
+      emit(decoder.flush());
     }
 
-    public void end() {
+    private void emit(String value) {
+      if (value.isEmpty()) {
+        return;
+      }
+      WritableMap map = Arguments.createMap();
+      map.putString("name", "ExecOutput");
+      map.putString("key", key);
+      map.putString("stream", stream);
+      if (channelId != null) {
+        map.putString("channelId", channelId);
+      }
+      map.putString("value", value);
+      sendEvent(reactContext, "ExecOutput", map);
     }
   }
 }
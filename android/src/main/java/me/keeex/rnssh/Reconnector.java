@@ -0,0 +1,143 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-establishes the session of a client that lost its connection.
+ *
+ * The first attempt is made at once, the next ones after an exponential
+ * backoff with jitter: attempt n waits a random delay between half and all of
+ * min(maxDelayMs, initialDelayMs * 2^(n-2)). The attempts run on the lane of
+ * the client, so operations issued meanwhile wait behind them and then run on
+ * the new session.
+ */
+class Reconnector {
+  static final int DEFAULT_MAX_ATTEMPTS = 8;
+  static final long DEFAULT_INITIAL_DELAY_MS = 500;
+  static final long DEFAULT_MAX_DELAY_MS = 30 * 1000;
+
+  /**
+   * Creates a new, unconnected session configured like the one that was
+   * authenticated, credentials included. release() is called once the session
+   * has authenticated or failed to, and lets go of what create() took for it.
+   */
+  interface SessionFactory {
+    Session create() throws JSchException;
+
+    void release(Session session);
+  }
+
+  interface Attempt {
+    void connect() throws Exception;
+  }
+
+  interface Listener {
+    void reconnecting(int attempt, long delayMs);
+
+    void reconnected(int attempts, long downtimeMs, long connectMs);
+
+    void failed(int attempts, String error);
+  }
+
+  final int maxAttempts;
+  final long initialDelayMs;
+  final long maxDelayMs;
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private boolean cancelled = false;
+
+  Reconnector(int maxAttempts, long initialDelayMs, long maxDelayMs) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialDelayMs = Math.max(0, initialDelayMs);
+    this.maxDelayMs = Math.max(this.initialDelayMs, maxDelayMs);
+  }
+
+  /**
+   * Claims the reconnection. Returns false if one is already under way.
+   */
+  boolean begin() {
+    return running.compareAndSet(false, true);
+  }
+
+  /**
+   * Gives the reconnection claimed by begin() up without running it.
+   */
+  void abandon() {
+    running.set(false);
+  }
+
+  boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Stops the reconnection after the current attempt, waking it up if it is
+   * waiting.
+   */
+  synchronized void cancel() {
+    cancelled = true;
+    notifyAll();
+  }
+
+  /**
+   * Makes attempts until one succeeds or maxAttempts have failed. Blocks the
+   * calling thread. Returns whether the client is connected again.
+   */
+  boolean run(Attempt attempt, Listener listener) {
+    long started = System.nanoTime();
+    String error = "Reconnect failed";
+    int attempts = 0;
+    try {
+      while (attempts < maxAttempts && !isCancelled()) {
+        long delay = attempts == 0 ? 0 : backoff(attempts);
+        attempts++;
+        listener.reconnecting(attempts, delay);
+        if (!pause(delay)) {
+          break;
+        }
+        long tried = System.nanoTime();
+        try {
+          attempt.connect();
+          long now = System.nanoTime();
+          listener.reconnected(attempts, (now - started) / 1000000, (now - tried) / 1000000);
+          return true;
+        } catch (Exception failure) {
+          error = failure.getMessage() != null ? failure.getMessage() : failure.toString();
+        }
+      }
+      listener.failed(attempts, isCancelled() ? "Reconnect cancelled" : error);
+      return false;
+    } finally {
+      running.set(false);
+    }
+  }
+
+  // Delay before the attempt that follows the given number of failures.
+  long backoff(int failures) {
+    long ceiling = initialDelayMs << Math.min(failures - 1, 20);
+    ceiling = Math.min(maxDelayMs, ceiling);
+    return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+  }
+
+  private synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  // Waits for the delay. Returns false if cancelled meanwhile.
+  private synchronized boolean pause(long delayMs) {
+    long deadline = System.currentTimeMillis() + delayMs;
+    try {
+      long left;
+      while (!cancelled && (left = deadline - System.currentTimeMillis()) > 0) {
+        wait(left);
+      }
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    return !cancelled;
+  }
+}
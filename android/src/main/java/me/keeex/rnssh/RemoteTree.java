@@ -0,0 +1,188 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recursive operations on remote directory trees.
+ *
+ * remove() deletes a tree level by level over several SFTP channels: the
+ * directories of a level are listed in parallel, then all their files are
+ * removed in parallel, so a single huge directory is spread over every
+ * channel too. Directories are removed last, deepest first.
+ */
+class RemoteTree {
+  static final int DEFAULT_CONCURRENCY = 4;
+  static final int MAX_CONCURRENCY = 8;
+
+  interface Progress {
+    void report(long files, long directories);
+  }
+
+  private interface Action {
+    void apply(ChannelSftp channel, String path) throws SftpException;
+  }
+
+  private final Session session;
+  private final SshExecutor executor;
+  int concurrency = DEFAULT_CONCURRENCY;
+
+  final AtomicLong filesRemoved = new AtomicLong();
+  final AtomicLong directoriesRemoved = new AtomicLong();
+
+  RemoteTree(Session session, SshExecutor executor) {
+    this.session = session;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates a directory and any missing parent. Returns the number of
+   * directories created.
+   */
+  static int mkdirs(ChannelSftp channel, String path) throws SftpException {
+    List<String> missing = new ArrayList<>();
+    String current = path;
+    while (current != null && !current.isEmpty() && !exists(channel, current)) {
+      missing.add(current);
+      int slash = current.lastIndexOf('/');
+      current = slash > 0 ? current.substring(0, slash) : slash == 0 ? null : "";
+    }
+    for (int i = missing.size() - 1; i >= 0; i--) {
+      channel.mkdir(missing.get(i));
+    }
+    return missing.size();
+  }
+
+  /**
+   * Removes a file or a whole directory tree. Symbolic links are removed, not
+   * followed.
+   */
+  void remove(String path, final Progress progress) throws Exception {
+    String root = path;
+    while (root.length() > 1 && root.endsWith("/")) {
+      root = root.substring(0, root.length() - 1);
+    }
+    if (root.isEmpty() || root.equals("/") || root.equals(".")) {
+      throw new IllegalArgumentException("Refusing to remove " + path);
+    }
+    int workers = Math.max(1, Math.min(MAX_CONCURRENCY, concurrency));
+    List<ChannelSftp> channels = new ArrayList<>();
+    try {
+      for (int i = 0; i < workers; i++) {
+        channels.add(openChannel());
+      }
+      ChannelSftp first = channels.get(0);
+      if (!first.lstat(root).isDir()) {
+        first.rm(root);
+        filesRemoved.incrementAndGet();
+        progress.report(filesRemoved.get(), directoriesRemoved.get());
+        return;
+      }
+
+      List<List<String>> levels = new ArrayList<>();
+      List<String> level = Collections.singletonList(root);
+      while (!level.isEmpty()) {
+        levels.add(level);
+        final List<String> files = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> subdirectories = Collections.synchronizedList(new ArrayList<String>());
+        forEach(channels, level, new Action() {
+          public void apply(ChannelSftp channel, final String dir) throws SftpException {
+            channel.ls(dir, new ChannelSftp.LsEntrySelector() {
+              public int select(LsEntry entry) {
+                String name = entry.getFilename();
+                if (!name.equals(".") && !name.equals("..")) {
+                  (entry.getAttrs().isDir() ? subdirectories : files).add(dir + "/" + name);
+                }
+                return CONTINUE;
+              }
+            });
+          }
+        });
+        forEach(channels, files, new Action() {
+          public void apply(ChannelSftp channel, String path) throws SftpException {
+            channel.rm(path);
+            filesRemoved.incrementAndGet();
+            progress.report(filesRemoved.get(), directoriesRemoved.get());
+          }
+        });
+        level = new ArrayList<>(subdirectories);
+      }
+
+      for (int i = levels.size() - 1; i >= 0; i--) {
+        forEach(channels, levels.get(i), new Action() {
+          public void apply(ChannelSftp channel, String path) throws SftpException {
+            channel.rmdir(path);
+            directoriesRemoved.incrementAndGet();
+            progress.report(filesRemoved.get(), directoriesRemoved.get());
+          }
+        });
+      }
+    } finally {
+      for (ChannelSftp channel : channels) {
+        channel.disconnect();
+      }
+    }
+  }
+
+  // Applies an action to every path, one channel per worker.
+  private void forEach(List<ChannelSftp> channels, final List<String> paths, final Action action) throws Exception {
+    if (paths.isEmpty()) {
+      return;
+    }
+    final AtomicInteger next = new AtomicInteger(0);
+    int workers = Math.min(channels.size(), paths.size());
+    if (workers == 1) {
+      for (String path : paths) {
+        action.apply(channels.get(0), path);
+      }
+      return;
+    }
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      final ChannelSftp channel = channels.get(i);
+      futures.add(executor.startStream(new Callable<Void>() {
+        public Void call() throws Exception {
+          int index;
+          while ((index = next.getAndIncrement()) < paths.size()) {
+            action.apply(channel, paths.get(index));
+          }
+          return null;
+        }
+      }));
+    }
+    ParallelDownload.awaitAll(futures, new Runnable() {
+      public void run() {
+        next.set(paths.size());
+      }
+    });
+  }
+
+  private static boolean exists(ChannelSftp channel, String path) throws SftpException {
+    try {
+      channel.stat(path);
+      return true;
+    } catch (SftpException error) {
+      if (error.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+        return false;
+      }
+      throw error;
+    }
+  }
+
+  private ChannelSftp openChannel() throws JSchException {
+    ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+    channel.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+    return channel;
+  }
+}
@@ -0,0 +1,156 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of one client, identified by the key generated in JavaScript.
+ *
+ * The registry holds one reference. Every operation that uses the session
+ * retains another one for its duration, so the session is only torn down once
+ * the client has been removed and the last operation has released it.
+ */
+class SSHClient {
+  Session _session;
+  String _key;
+  String _host;
+  int _port;
+  String _username;
+  PreparedTransport _transport = null;
+  TransportPool _transports = null;
+  String _transportId = null;
+  SessionTimings _timings = null;
+  final Map<String, ChannelHandle> _channels = new ConcurrentHashMap<>();
+  volatile String _shellId = null;
+  ChannelSftp _sftpSession = null;
+  MetadataCache _metadataCache = null;
+  volatile Boolean _downloadContinue = false;
+  volatile Boolean _uploadContinue = false;
+  // Bumped by sftpCancelLs; a listing stops once it differs from the value
+  // seen when the listing was requested.
+  final AtomicInteger _lsCancels = new AtomicInteger(0);
+  volatile ChannelExec _execChannel = null;
+  volatile boolean _execCancelled = false;
+  volatile boolean _disconnected = false;
+  volatile Reconnector.SessionFactory _sessionFactory = null;
+  String _authMethod = null;
+  String _authTransportId = null;
+  volatile Reconnector _reconnector = null;
+  int _reconnects = 0;
+  long _lastReconnectMs = 0;
+
+  private final AtomicInteger refCount = new AtomicInteger(1);
+  private final AtomicInteger channelIds = new AtomicInteger(0);
+
+  /**
+   * Takes a reference on the client. Returns false if the client is already
+   * being torn down.
+   */
+  boolean retain() {
+    while (true) {
+      int count = refCount.get();
+      if (count <= 0) {
+        return false;
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Keeps what is needed to authenticate again the same way, for automatic
+   * reconnection. The factory holds the credentials, so nothing is kept unless
+   * automatic reconnection is enabled.
+   */
+  void rememberAuthentication(Reconnector.SessionFactory factory, String method, String transportId) {
+    if (_reconnector == null) {
+      return;
+    }
+    _sessionFactory = factory;
+    _authMethod = method;
+    _authTransportId = transportId;
+  }
+
+  /**
+   * Drops the credentials kept by rememberAuthentication().
+   */
+  void forgetAuthentication() {
+    _sessionFactory = null;
+    _authMethod = null;
+    _authTransportId = null;
+  }
+
+  String nextChannelId() {
+    return String.valueOf(channelIds.incrementAndGet());
+  }
+
+  /**
+   * The channel used by writeToShell and closeShell, which take no channel id.
+   */
+  ChannelHandle defaultShell() {
+    String id = _shellId;
+    return id == null ? null : _channels.get(id);
+  }
+
+  void release() {
+    if (refCount.decrementAndGet() == 0) {
+      close();
+    }
+  }
+
+  /**
+   * Switches the client to another session. The previous one is handed back to
+   * the transport pool if it was shared, disconnected otherwise. transportId is
+   * null for a session owned by this client alone.
+   */
+  void setSession(Session session, String transportId) {
+    Session previous = _session;
+    String previousId = _transportId;
+    _session = session;
+    _transportId = transportId;
+    if (previous == null) {
+      return;
+    }
+    if (previous != session) {
+      releaseSession(previous, previousId);
+    } else if (previousId != null) {
+      // Attached twice to the same shared transport: drop the extra reference.
+      _transports.release(previousId, previous);
+    }
+  }
+
+  private void releaseSession(Session session, String transportId) {
+    if (transportId != null && _transports != null) {
+      _transports.release(transportId, session);
+    } else {
+      session.disconnect();
+    }
+  }
+
+  private void close() {
+    Reconnector reconnector = _reconnector;
+    if (reconnector != null) {
+      reconnector.cancel();
+    }
+    forgetAuthentication();
+    if (_transport != null) {
+      _transport.close();
+    }
+    if (_sftpSession != null) {
+      _sftpSession.disconnect();
+    }
+    for (ChannelHandle handle : _channels.values()) {
+      handle.close();
+    }
+    _channels.clear();
+    if (_session != null) {
+      releaseSession(_session, _transportId);
+    }
+  }
+}
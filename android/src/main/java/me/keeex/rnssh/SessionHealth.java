@@ -0,0 +1,116 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Keeps sessions alive and notices the ones that died.
+ *
+ * Every session gets a server-alive interval: when nothing has been read from
+ * the server for that long, JSch sends a keepalive request, and after
+ * keepaliveCountMax unanswered ones it drops the session. The interval is also
+ * the read timeout of the socket, so a transport that went dead behind a NAT
+ * is torn down within interval * (countMax + 1) instead of blocking until the
+ * TCP stack gives up; every channel of the session, and any operation waiting
+ * on one, fails with it.
+ *
+ * A monitor then checks the clients every monitorIntervalMs and reports each
+ * session that is no longer connected, once.
+ */
+class SessionHealth {
+  static final int DEFAULT_KEEPALIVE_INTERVAL_MS = 15 * 1000;
+  static final int DEFAULT_KEEPALIVE_COUNT_MAX = 3;
+  static final long DEFAULT_MONITOR_INTERVAL_MS = 5 * 1000;
+  static final int CHANNEL_CONNECT_TIMEOUT_MS = 20 * 1000;
+
+  interface Listener {
+    void disconnected(SSHClient client);
+  }
+
+  private final SessionRegistry registry;
+  private final SshExecutor executor;
+  private final Listener listener;
+  private volatile int keepaliveIntervalMs = DEFAULT_KEEPALIVE_INTERVAL_MS;
+  private volatile int keepaliveCountMax = DEFAULT_KEEPALIVE_COUNT_MAX;
+  private volatile long monitorIntervalMs = DEFAULT_MONITOR_INTERVAL_MS;
+  private ScheduledFuture<?> monitor = null;
+  private boolean added = false;
+  private boolean stopped = false;
+
+  SessionHealth(SessionRegistry registry, SshExecutor executor, Listener listener) {
+    this.registry = registry;
+    this.executor = executor;
+    this.listener = listener;
+  }
+
+  /**
+   * Changes the settings for sessions connected from now on. A keepalive
+   * interval of 0 disables keepalives and read timeouts.
+   */
+  void configure(int keepaliveIntervalMs, int keepaliveCountMax, long monitorIntervalMs) {
+    this.keepaliveIntervalMs = Math.max(0, keepaliveIntervalMs);
+    this.keepaliveCountMax = Math.max(1, keepaliveCountMax);
+    this.monitorIntervalMs = Math.max(500, monitorIntervalMs);
+  }
+
+  /**
+   * Sets up keepalives on a session before it connects.
+   */
+  void apply(Session session) throws JSchException {
+    session.setServerAliveInterval(keepaliveIntervalMs);
+    session.setServerAliveCountMax(keepaliveCountMax);
+  }
+
+  /**
+   * Starts watching a client whose session has just connected.
+   */
+  synchronized void watch(SSHClient client) {
+    client._disconnected = false;
+    // A check already running may have missed this client.
+    added = true;
+    if (monitor == null && !stopped) {
+      schedule();
+    }
+  }
+
+  synchronized void stop() {
+    stopped = true;
+    if (monitor != null) {
+      monitor.cancel(false);
+      monitor = null;
+    }
+  }
+
+  private void schedule() {
+    monitor = executor.schedule(new Runnable() {
+      public void run() {
+        check();
+      }
+    }, monitorIntervalMs);
+  }
+
+  private void check() {
+    boolean watching = false;
+    for (SSHClient client : registry.clients()) {
+      Session session = client._session;
+      if (session == null || client._disconnected) {
+        continue;
+      }
+      if (session.isConnected()) {
+        watching = true;
+      } else {
+        client._disconnected = true;
+        listener.disconnected(client);
+      }
+    }
+    synchronized (this) {
+      monitor = null;
+      if ((watching || added) && !stopped) {
+        schedule();
+      }
+      added = false;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package me.dylankenneally.rnssh;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe map of client key to client.
+ *
+ * Lookups go through acquire()/release() so that removing a client while an
+ * operation still uses it only drops the registry reference; the session is
+ * disconnected when that operation finishes.
+ */
+class SessionRegistry {
+  private final ConcurrentHashMap<String, SSHClient> clients = new ConcurrentHashMap<>(64);
+
+  /**
+   * Returns the client for a key with a reference taken, or null. Callers must
+   * hand it back with release().
+   */
+  SSHClient acquire(String key) {
+    if (key == null) {
+      return null;
+    }
+    SSHClient client = clients.get(key);
+    if (client == null || !client.retain()) {
+      return null;
+    }
+    return client;
+  }
+
+  void release(SSHClient client) {
+    if (client != null) {
+      client.release();
+    }
+  }
+
+  /**
+   * Returns the client for a key without taking a reference. Only for reading
+   * flags that stay valid after the session is gone.
+   */
+  SSHClient peek(String key) {
+    return key == null ? null : clients.get(key);
+  }
+
+  /**
+   * Registers a client, releasing the client previously stored under the same
+   * key if any.
+   */
+  void put(String key, SSHClient client) {
+    SSHClient previous = clients.put(key, client);
+    if (previous != null && previous != client) {
+      previous.release();
+    }
+  }
+
+  /**
+   * Unregisters a client. Its session is closed once no operation uses it.
+   */
+  SSHClient remove(String key) {
+    SSHClient client = clients.remove(key);
+    if (client != null) {
+      client.release();
+    }
+    return client;
+  }
+
+  /**
+   * The registered clients, without taking references.
+   */
+  Collection<SSHClient> clients() {
+    return clients.values();
+  }
+
+  int size() {
+    return clients.size();
+  }
+}
@@ -0,0 +1,60 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.Logger;
+
+/**
+ * Records how long each phase of Session.connect() takes (TCP, key exchange,
+ * userauth) by watching the messages JSch logs for the session.
+ */
+class SessionTimings implements Logger {
+  final String method;
+  private final long start = System.nanoTime();
+  private volatile long connected = 0;
+  private volatile long newKeys = 0;
+  private volatile long authenticated = 0;
+  long tcpMillis = 0;
+  boolean preparedSocket = false;
+
+  SessionTimings(String method) {
+    this.method = method;
+  }
+
+  @Override
+  public boolean isEnabled(int level) {
+    return level == Logger.INFO;
+  }
+
+  @Override
+  public void log(int level, String message) {
+    if (message.startsWith("Connection established")) {
+      connected = System.nanoTime();
+    } else if (message.startsWith("SSH_MSG_NEWKEYS received")) {
+      newKeys = System.nanoTime();
+    } else if (message.startsWith("Authentication succeeded")) {
+      authenticated = System.nanoTime();
+    }
+  }
+
+  long kexMillis() {
+    return connected == 0 || newKeys == 0 ? 0 : (newKeys - connected) / 1000000;
+  }
+
+  long authMillis() {
+    return newKeys == 0 || authenticated == 0 ? 0 : (authenticated - newKeys) / 1000000;
+  }
+
+  /**
+   * Wall time of Session.connect(). Excludes the TCP connect when the socket
+   * had been prepared beforehand.
+   */
+  long connectMillis() {
+    long end = authenticated != 0 ? authenticated : System.nanoTime();
+    return (end - start) / 1000000;
+  }
+
+  @Override
+  public String toString() {
+    return method + ": tcp=" + tcpMillis + "ms" + (preparedSocket ? " (prepared)" : "")
+      + " kex=" + kexMillis() + "ms userauth=" + authMillis() + "ms connect=" + connectMillis() + "ms";
+  }
+}
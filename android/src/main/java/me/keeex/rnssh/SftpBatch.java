@@ -0,0 +1,170 @@
+package me.dylankenneally.rnssh;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a list of SFTP operations (rm, rmdir, mkdir, rename, chmod, stat) for
+ * one client and collects one result per operation, in order.
+ *
+ * Operations run one after the other on the SFTP channel of the client, or,
+ * when concurrency is above one, on that many channels at once (at most
+ * MAX_CONCURRENCY); operations
+ * must then not depend on each other. Each result is {ok: true} (with a stat
+ * map for stat) or {ok: false, error}. With stopOnError, operations after the
+ * first failure are not attempted and report "Skipped".
+ */
+class SftpBatch {
+  static final int MAX_CONCURRENCY = 8;
+
+  private final Session session;
+  private final ChannelSftp channel;
+  private final MetadataCache cache;
+  private final String cwd;
+  int concurrency = 1;
+  boolean stopOnError = false;
+
+  SftpBatch(Session session, ChannelSftp channel, MetadataCache cache) throws SftpException {
+    this.session = session;
+    this.channel = channel;
+    this.cache = cache;
+    this.cwd = channel.pwd();
+  }
+
+  WritableArray run(final ReadableArray operations, SshExecutor executor) throws Exception {
+    final int count = operations.size();
+    final WritableMap[] results = new WritableMap[count];
+    final AtomicInteger next = new AtomicInteger(0);
+    final AtomicBoolean failed = new AtomicBoolean(false);
+
+    int workers = Math.max(1, Math.min(Math.min(MAX_CONCURRENCY, concurrency), count));
+    if (workers == 1) {
+      drain(channel, operations, results, next, failed);
+    } else {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        final boolean own = i > 0;
+        futures.add(executor.startStream(new Callable<Void>() {
+          public Void call() throws Exception {
+            ChannelSftp worker;
+            try {
+              worker = own ? openChannel() : channel;
+            } catch (JSchException error) {
+              // The other workers drain the queue.
+              return null;
+            }
+            try {
+              drain(worker, operations, results, next, failed);
+            } finally {
+              if (own) {
+                worker.disconnect();
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      ParallelDownload.awaitAll(futures, new Runnable() {
+        public void run() {
+          next.set(count);
+        }
+      });
+    }
+
+    WritableArray response = Arguments.createArray();
+    for (WritableMap result : results) {
+      response.pushMap(result);
+    }
+    return response;
+  }
+
+  private void drain(ChannelSftp worker, ReadableArray operations, WritableMap[] results,
+                     AtomicInteger next, AtomicBoolean failed) {
+    SftpEntries entries = new SftpEntries();
+    int index;
+    while ((index = next.getAndIncrement()) < results.length) {
+      if (stopOnError && failed.get()) {
+        results[index] = failure("Skipped");
+        continue;
+      }
+      try {
+        results[index] = apply(worker, operations.getMap(index), entries);
+      } catch (Exception error) {
+        failed.set(true);
+        results[index] = failure(error.getMessage() != null ? error.getMessage() : error.toString());
+      }
+    }
+  }
+
+  private WritableMap apply(ChannelSftp worker, ReadableMap operation, SftpEntries entries) throws SftpException {
+    String op = operation.getString("op");
+    String path = operation.getString("path");
+    WritableMap result = Arguments.createMap();
+    if ("stat".equals(op)) {
+      String absolute = MetadataCache.normalize(path, cwd);
+      SftpATTRS attrs = cache != null ? cache.getStat(absolute) : null;
+      if (attrs == null) {
+        attrs = worker.stat(path);
+        if (cache != null) {
+          cache.putStat(absolute, attrs);
+        }
+      }
+      result.putMap("stat", entries.toMap(absolute.substring(absolute.lastIndexOf('/') + 1), attrs));
+    } else if ("rm".equals(op)) {
+      invalidate(path);
+      worker.rm(path);
+    } else if ("rmdir".equals(op)) {
+      invalidate(path);
+      worker.rmdir(path);
+    } else if ("mkdir".equals(op)) {
+      invalidate(path);
+      worker.mkdir(path);
+    } else if ("rename".equals(op)) {
+      String newPath = operation.getString("newPath");
+      invalidate(path);
+      invalidate(newPath);
+      worker.rename(path, newPath);
+    } else if ("chmod".equals(op)) {
+      invalidate(path);
+      worker.chmod(operation.getInt("permissions"), path);
+    } else {
+      throw new IllegalArgumentException("Unknown operation " + op);
+    }
+    result.putBoolean("ok", true);
+    return result;
+  }
+
+  private void invalidate(String path) {
+    if (cache != null) {
+      cache.invalidate(MetadataCache.normalize(path, cwd));
+    }
+  }
+
+  private static WritableMap failure(String message) {
+    WritableMap result = Arguments.createMap();
+    result.putBoolean("ok", false);
+    result.putString("error", message);
+    return result;
+  }
+
+  private ChannelSftp openChannel() throws JSchException {
+    ChannelSftp worker = (ChannelSftp) session.openChannel("sftp");
+    worker.connect(SessionHealth.CHANNEL_CONNECT_TIMEOUT_MS);
+    return worker;
+  }
+}
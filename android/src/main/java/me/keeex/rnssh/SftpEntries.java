@@ -0,0 +1,84 @@
+package me.dylankenneally.rnssh;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.jcraft.jsch.SftpATTRS;
+
+/**
+ * Converts SFTP directory entries and attributes to the maps handed to
+ * JavaScript.
+ *
+ * Times are sent both as epoch seconds (mtime, atime) and as ISO 8601 UTC
+ * strings (modificationDate, lastAccess). The strings are built by hand into a
+ * reused buffer: Formatter and SimpleDateFormat dominate the cost of listing
+ * large directories otherwise. Instances reuse that buffer, so each listing
+ * uses its own.
+ */
+class SftpEntries {
+  private final StringBuilder buffer = new StringBuilder(24);
+
+  /**
+   * Builds the map of one entry. Directory names get a trailing slash, as they
+   * always have in sftpLs.
+   */
+  WritableMap toMap(String filename, SftpATTRS attrs) {
+    WritableMap map = Arguments.createMap();
+    boolean isDirectory = attrs.isDir();
+    map.putString("filename", isDirectory ? filename + '/' : filename);
+    map.putBoolean("isDirectory", isDirectory);
+    putAttributes(map, attrs);
+    return map;
+  }
+
+  void putAttributes(WritableMap map, SftpATTRS attrs) {
+    long mtime = unsigned(attrs.getMTime());
+    long atime = unsigned(attrs.getATime());
+    map.putDouble("mtime", mtime);
+    map.putDouble("atime", atime);
+    map.putString("modificationDate", iso8601(mtime));
+    map.putString("lastAccess", iso8601(atime));
+    map.putDouble("fileSize", attrs.getSize());
+    map.putInt("ownerUserID", attrs.getUId());
+    map.putInt("ownerGroupID", attrs.getGId());
+    map.putInt("permissions", attrs.getPermissions());
+    map.putInt("flags", attrs.getFlags());
+  }
+
+  /**
+   * Formats epoch seconds as yyyy-MM-ddTHH:mm:ssZ.
+   */
+  String iso8601(long epochSeconds) {
+    long days = Math.floorDiv(epochSeconds, 86400L);
+    int secondOfDay = (int) Math.floorMod(epochSeconds, 86400L);
+
+    // Civil date from days since 1970-01-01 (Howard Hinnant's algorithm).
+    long z = days + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    StringBuilder out = buffer;
+    out.setLength(0);
+    out.append(year).append('-');
+    pad2(out, month).append('-');
+    pad2(out, day).append('T');
+    pad2(out, secondOfDay / 3600).append(':');
+    pad2(out, secondOfDay / 60 % 60).append(':');
+    pad2(out, secondOfDay % 60).append('Z');
+    return out.toString();
+  }
+
+  // SFTP v3 times are unsigned 32-bit values.
+  private static long unsigned(int seconds) {
+    return seconds & 0xffffffffL;
+  }
+
+  private static StringBuilder pad2(StringBuilder out, int value) {
+    return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+  }
+}
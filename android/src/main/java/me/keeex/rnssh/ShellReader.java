@@ -0,0 +1,95 @@
+package me.dylankenneally.rnssh;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the raw output of a shell channel and hands it over in frames.
+ *
+ * A frame starts with the first byte that arrives and is sent once frameMs
+ * have passed or maxBatchBytes have been read, whichever comes first. Anything
+ * the server already sent is taken without waiting, so interactive output is
+ * delayed by at most one frame while a burst (cat of a large file) becomes a
+ * few large events instead of one per line. Prompts without a trailing newline
+ * are sent like any other output. Frames are decoded as UTF-8, holding back a
+ * character split across two reads.
+ */
+class ShellReader implements Runnable {
+  static final int DEFAULT_FRAME_MS = 16;
+  static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+  private static final String LOGTAG = "RNSSHClient";
+  private static final long POLL_NANOS = 2000000;
+
+  interface Sink {
+    void output(String text);
+  }
+
+  private final InputStream in;
+  private final long frameNanos;
+  private final int maxBatchBytes;
+  private final Sink sink;
+  private volatile boolean stopped = false;
+
+  ShellReader(InputStream in, int frameMs, int maxBatchBytes, Sink sink) {
+    this.in = in;
+    this.frameNanos = Math.max(0, frameMs) * 1000000L;
+    this.maxBatchBytes = Math.max(1024, maxBatchBytes);
+    this.sink = sink;
+  }
+
+  /**
+   * Stops after the current frame. Closing the channel also ends the reader.
+   */
+  void stop() {
+    stopped = true;
+  }
+
+  public void run() {
+    byte[] buffer = new byte[maxBatchBytes];
+    Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+    try {
+      boolean eof = false;
+      while (!eof && !stopped) {
+        int fill = in.read(buffer, 0, buffer.length);
+        if (fill < 0) {
+          break;
+        }
+        long deadline = System.nanoTime() + frameNanos;
+        while (fill < buffer.length) {
+          int available = in.available();
+          if (available > 0) {
+            int read = in.read(buffer, fill, Math.min(available, buffer.length - fill));
+            if (read < 0) {
+              eof = true;
+              break;
+            }
+            fill += read;
+            continue;
+          }
+          long left = deadline - System.nanoTime();
+          if (left <= 0 || stopped) {
+            break;
+          }
+          long pause = Math.min(left, POLL_NANOS);
+          Thread.sleep(pause / 1000000, (int) (pause % 1000000));
+        }
+        String text = decoder.decode(buffer, 0, fill);
+        if (!text.isEmpty()) {
+          sink.output(text);
+        }
+      }
+      String rest = decoder.flush();
+      if (!rest.isEmpty()) {
+        sink.output(rest);
+      }
+    } catch (IOException error) {
+      if (!stopped) {
+        Log.e(LOGTAG, "Error reading shell: " + error.getMessage());
+      }
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
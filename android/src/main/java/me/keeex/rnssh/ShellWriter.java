@@ -0,0 +1,147 @@
+package me.dylankenneally.rnssh;
+
+import com.facebook.react.bridge.Callback;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the input of a shell from a thread of its own.
+ *
+ * write() only queues the text and wakes the writer, so it can be called from
+ * the bridge thread for every keystroke. The writer takes everything queued
+ * since its last pass, encodes it as UTF-8 in one go, writes it and flushes
+ * once. A high surrogate at the end of a pass is held back until the next one,
+ * so a surrogate pair split across two writes is still encoded correctly. The
+ * callback of each write is invoked after the flush that sent all of it.
+ */
+class ShellWriter implements Runnable {
+  private static final long CLOSE_TIMEOUT_MS = 1000;
+
+  private static class Pending {
+    final String text;
+    final Callback callback;
+
+    Pending(String text, Callback callback) {
+      this.text = text;
+      this.callback = callback;
+    }
+  }
+
+  private final OutputStream out;
+  private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private volatile Thread thread = null;
+  private volatile boolean closed = false;
+
+  ShellWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Queues text for the shell. Returns false once the writer is closed.
+   */
+  boolean write(String text, Callback callback) {
+    if (closed) {
+      return false;
+    }
+    Pending pending = new Pending(text, callback);
+    queue.offer(pending);
+    if (closed && queue.remove(pending)) {
+      // Closed meanwhile and the writer did not see it.
+      return false;
+    }
+    LockSupport.unpark(thread);
+    return true;
+  }
+
+  /**
+   * Sends what is still queued, then stops the writer. Waits up to a second
+   * for the last flush so the channel can be closed right after.
+   */
+  void close() {
+    closed = true;
+    LockSupport.unpark(thread);
+    try {
+      finished.await(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public void run() {
+    thread = Thread.currentThread();
+    List<Pending> batch = new ArrayList<>();
+    StringBuilder text = new StringBuilder();
+    String error = null;
+    try {
+      while (error == null) {
+        boolean added = false;
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+          batch.add(pending);
+          text.append(pending.text);
+          added = true;
+        }
+        if (!added && (!closed || batch.isEmpty())) {
+          if (closed) {
+            break;
+          }
+          LockSupport.park(this);
+          continue;
+        }
+        int length = text.length();
+        int keep = 0;
+        if (!closed && length > 0 && Character.isHighSurrogate(text.charAt(length - 1))) {
+          // Wait for the low surrogate; the writes from the one holding the
+          // high surrogate on are only complete once it has been sent.
+          length--;
+          keep = 1;
+          while (keep < batch.size() && batch.get(batch.size() - keep).text.isEmpty()) {
+            keep++;
+          }
+        }
+        if (length > 0) {
+          try {
+            out.write(text.substring(0, length).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+          } catch (IOException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+          }
+        }
+        List<Pending> sent = batch.subList(0, batch.size() - keep);
+        for (Pending done : sent) {
+          if (error != null) {
+            done.callback.invoke(error);
+          } else {
+            done.callback.invoke();
+          }
+        }
+        sent.clear();
+        text.delete(0, length);
+      }
+    } finally {
+      closed = true;
+      for (Pending held : batch) {
+        held.callback.invoke(error != null ? error : "Shell closed");
+      }
+      Pending pending;
+      while ((pending = queue.poll()) != null) {
+        pending.callback.invoke(error != null ? error : "Shell closed");
+      }
+      try {
+        out.close();
+      } catch (IOException e) {
+        // The channel is going away anyway.
+      }
+      finished.countDown();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package me.dylankenneally.rnssh;
+
+import android.util.Base64;
+
+import com.jcraft.jsch.JSchException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands data to sign over to JavaScript and waits for the signature.
+ *
+ * JSch asks an identity for its signature synchronously, from the thread that
+ * authenticates, so that thread has to wait; nothing else does. Each request
+ * gets an id that JavaScript answers with provide(). A request fails when the
+ * timeout elapses, when JavaScript answers with an empty signature, or when
+ * the client it belongs to is disconnected, so a closed client never keeps
+ * its lane waiting for a signature that will not come.
+ */
+class SignBroker {
+  static final long DEFAULT_TIMEOUT_MS = 30 * 1000;
+  private static final int LATENCY_SAMPLES = 256;
+
+  interface Emitter {
+    void emit(String requestId, String dataBase64);
+  }
+
+  private static class Request {
+    final String key;
+    String signature = null;
+    String error = null;
+
+    Request(String key) {
+      this.key = key;
+    }
+  }
+
+  static class Stats {
+    long requests;
+    long signed;
+    long failed;
+    long timedOut;
+    long cancelled;
+    int pending;
+    long latencyP50Ms;
+    long latencyP99Ms;
+    long latencyMaxMs;
+  }
+
+  private final Map<String, Request> pending = new ConcurrentHashMap<>();
+  private volatile long timeoutMs = DEFAULT_TIMEOUT_MS;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong signed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong timedOut = new AtomicLong();
+  private final AtomicLong cancelled = new AtomicLong();
+  private final long[] latencySamples = new long[LATENCY_SAMPLES];
+  private long latencyCount = 0;
+  private long latencyMax = 0;
+
+  void setTimeout(long timeoutMs) {
+    this.timeoutMs = Math.max(1000, timeoutMs);
+  }
+
+  /**
+   * Asks JavaScript to sign data for the client and waits for the raw
+   * signature.
+   */
+  byte[] sign(String key, byte[] data, Emitter emitter) throws JSchException {
+    String requestId = UUID.randomUUID().toString();
+    Request request = new Request(key);
+    pending.put(requestId, request);
+    requests.incrementAndGet();
+    long timeout = timeoutMs;
+    long started = System.nanoTime();
+    try {
+      emitter.emit(requestId, Base64.encodeToString(data, Base64.DEFAULT));
+      if (SshLog.isEnabled(SshLog.DEBUG)) {
+        SshLog.d("Sign request %s sent for client %s, %d pending", requestId, key, pending.size());
+      }
+      String signature = await(request, started + timeout * 1000000, timeout);
+      record(System.nanoTime() - started);
+      signed.incrementAndGet();
+      return Base64.decode(signature, Base64.DEFAULT);
+    } catch (JSchException error) {
+      failed.incrementAndGet();
+      throw error;
+    } finally {
+      pending.remove(requestId);
+    }
+  }
+
+  /**
+   * Completes a request with the signature sent by JavaScript; an empty
+   * signature fails it. Returns false if the request is unknown, typically
+   * because it timed out.
+   */
+  boolean provide(String requestId, String signatureBase64) {
+    Request request = pending.get(requestId);
+    if (request == null) {
+      return false;
+    }
+    synchronized (request) {
+      if (signatureBase64 == null || signatureBase64.isEmpty()) {
+        request.error = "Sign callback failed";
+      } else {
+        request.signature = signatureBase64;
+      }
+      request.notifyAll();
+    }
+    return true;
+  }
+
+  /**
+   * Fails the pending requests of a client. Returns how many there were.
+   */
+  int cancel(String key) {
+    int count = 0;
+    Iterator<Request> requests = pending.values().iterator();
+    while (requests.hasNext()) {
+      Request request = requests.next();
+      if (!request.key.equals(key)) {
+        continue;
+      }
+      synchronized (request) {
+        if (request.signature == null && request.error == null) {
+          request.error = "Sign request cancelled: client disconnected";
+          request.notifyAll();
+          cancelled.incrementAndGet();
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  Stats getStats() {
+    Stats stats = new Stats();
+    stats.requests = requests.get();
+    stats.signed = signed.get();
+    stats.failed = failed.get();
+    stats.timedOut = timedOut.get();
+    stats.cancelled = cancelled.get();
+    stats.pending = pending.size();
+    long[] sorted;
+    synchronized (latencySamples) {
+      int n = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+      sorted = Arrays.copyOf(latencySamples, n);
+      stats.latencyMaxMs = latencyMax / 1000000;
+    }
+    Arrays.sort(sorted);
+    stats.latencyP50Ms = SshExecutor.percentile(sorted, 50) / 1000000;
+    stats.latencyP99Ms = SshExecutor.percentile(sorted, 99) / 1000000;
+    return stats;
+  }
+
+  private String await(Request request, long deadline, long timeout) throws JSchException {
+    synchronized (request) {
+      try {
+        long left;
+        while (request.signature == null && request.error == null
+            && (left = deadline - System.nanoTime()) > 0) {
+          request.wait(Math.max(1, left / 1000000));
+        }
+      } catch (InterruptedException error) {
+        Thread.currentThread().interrupt();
+        throw new JSchException("Sign request interrupted");
+      }
+      if (request.error != null) {
+        throw new JSchException(request.error);
+      }
+      if (request.signature == null) {
+        timedOut.incrementAndGet();
+        throw new JSchException("Sign callback timed out after " + timeout + "ms");
+      }
+      return request.signature;
+    }
+  }
+
+  private void record(long latency) {
+    synchronized (latencySamples) {
+      latencySamples[(int) (latencyCount % LATENCY_SAMPLES)] = latency;
+      latencyCount++;
+      latencyMax = Math.max(latencyMax, latency);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package me.dylankenneally.rnssh;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.jcraft.jsch.HostKey;
+import com.jcraft.jsch.HostKeyRepository;
+import com.jcraft.jsch.Identity;
+import com.jcraft.jsch.IdentityRepository;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.UserInfo;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JSch instance every session is created from, and the configuration they
+ * get.
+ *
+ * Apps register session defaults for all hosts ("*") or for one host; a host's
+ * own defaults override the global ones, which override the built-in ones.
+ * The merged configuration of a host is computed once and reused until
+ * defaults change.
+ *
+ * Since the JSch instance is shared, nothing is added to it: each session
+ * gets its own identity repository holding the identity it authenticates
+ * with, if any, and its own empty host key repository, so that sessions see
+ * neither each other's keys nor each other's host keys, as when each had its
+ * own JSch.
+ */
+class SshConfig {
+  static final int DEFAULT_CONNECT_TIMEOUT_MS = 30 * 1000;
+  static final String ANY_HOST = "*";
+
+  private static class Defaults {
+    final Hashtable<String, String> config;
+    final int connectTimeoutMs;
+
+    Defaults(Hashtable<String, String> config, int connectTimeoutMs) {
+      this.config = config;
+      this.connectTimeoutMs = connectTimeoutMs;
+    }
+  }
+
+  private final JSch jsch = new JSch();
+  private final Map<String, Defaults> registered = new HashMap<>();
+  private final Map<String, Defaults> resolved = new ConcurrentHashMap<>();
+
+  JSch jsch() {
+    return jsch;
+  }
+
+  /**
+   * Sets the session defaults of a host, or of every host for ANY_HOST.
+   * Replaces the previous ones; null removes them.
+   *
+   * Options: ciphers, kex, macs and hostKeyAlgorithms (arrays of algorithm
+   * names, in order of preference), compression (boolean), compressionLevel
+   * (1 to 9) and connectTimeoutMs.
+   */
+  synchronized void register(String host, ReadableMap options) {
+    String name = host == null ? ANY_HOST : host.toLowerCase(Locale.ROOT);
+    if (options == null) {
+      registered.remove(name);
+    } else {
+      registered.put(name, parse(options));
+    }
+    resolved.clear();
+  }
+
+  /**
+   * Creates a session to the host with its defaults applied. The identity,
+   * if any, is the only one the session offers.
+   */
+  Session newSession(String username, String host, int port, Identity identity) throws JSchException {
+    Session session = jsch.getSession(username, host, port);
+    session.setConfig(defaults(host).config);
+    session.setIdentityRepository(new SessionIdentities(identity));
+    session.setHostKeyRepository(new SessionHostKeys());
+    return session;
+  }
+
+  int connectTimeoutMs(String host) {
+    return defaults(host).connectTimeoutMs;
+  }
+
+  private Defaults defaults(String host) {
+    String name = host == null ? ANY_HOST : host.toLowerCase(Locale.ROOT);
+    Defaults defaults = resolved.get(name);
+    return defaults != null ? defaults : resolve(name);
+  }
+
+  // Resolves and caches under the lock of register(), so a resolution made
+  // before a register() call cannot be cached after it cleared the cache.
+  private synchronized Defaults resolve(String host) {
+    Defaults cached = resolved.get(host);
+    if (cached != null) {
+      return cached;
+    }
+    Hashtable<String, String> config = new Hashtable<>();
+    config.put("StrictHostKeyChecking", "no");
+    int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    for (String name : new String[] { ANY_HOST, host }) {
+      Defaults defaults = registered.get(name);
+      if (defaults != null) {
+        config.putAll(defaults.config);
+        if (defaults.connectTimeoutMs > 0) {
+          connectTimeoutMs = defaults.connectTimeoutMs;
+        }
+      }
+    }
+    Defaults defaults = new Defaults(config, connectTimeoutMs);
+    resolved.put(host, defaults);
+    return defaults;
+  }
+
+  private static Defaults parse(ReadableMap options) {
+    Hashtable<String, String> config = new Hashtable<>();
+    int connectTimeoutMs = 0;
+    ReadableMapKeySetIterator names = options.keySetIterator();
+    while (names.hasNextKey()) {
+      String name = names.nextKey();
+      switch (name) {
+        case "ciphers":
+          String ciphers = algorithms(options.getArray(name), "cipher");
+          config.put("cipher.c2s", ciphers);
+          config.put("cipher.s2c", ciphers);
+          break;
+        case "kex":
+          config.put("kex", algorithms(options.getArray(name), "key exchange"));
+          break;
+        case "macs":
+          String macs = algorithms(options.getArray(name), "MAC");
+          config.put("mac.c2s", macs);
+          config.put("mac.s2c", macs);
+          break;
+        case "hostKeyAlgorithms":
+          config.put("server_host_key", algorithms(options.getArray(name), "host key algorithm"));
+          break;
+        case "compression":
+          String compression = options.getBoolean(name) ? "zlib@openssh.com,zlib,none" : "none";
+          config.put("compression.c2s", compression);
+          config.put("compression.s2c", compression);
+          break;
+        case "compressionLevel":
+          config.put("compression_level", String.valueOf(Math.max(1, Math.min(9, options.getInt(name)))));
+          break;
+        case "connectTimeoutMs":
+          connectTimeoutMs = Math.max(1, options.getInt(name));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown session option " + name);
+      }
+    }
+    return new Defaults(config, connectTimeoutMs);
+  }
+
+  // Joins algorithm names, rejecting the ones JSch does not implement.
+  private static String algorithms(ReadableArray names, String kind) {
+    StringBuilder list = new StringBuilder();
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.getString(i);
+      if (JSch.getConfig(name) == null) {
+        throw new IllegalArgumentException("Unsupported " + kind + " " + name);
+      }
+      if (list.length() > 0) {
+        list.append(',');
+      }
+      list.append(name);
+    }
+    if (list.length() == 0) {
+      throw new IllegalArgumentException("No " + kind + " given");
+    }
+    return list.toString();
+  }
+
+  private static class SessionIdentities implements IdentityRepository {
+    private final Identity identity;
+
+    SessionIdentities(Identity identity) {
+      this.identity = identity;
+    }
+
+    public String getName() {
+      return "session";
+    }
+
+    public int getStatus() {
+      return RUNNING;
+    }
+
+    public Vector<Identity> getIdentities() {
+      Vector<Identity> identities = new Vector<>();
+      if (identity != null) {
+        identities.add(identity);
+      }
+      return identities;
+    }
+
+    public boolean add(byte[] identity) {
+      return false;
+    }
+
+    public boolean remove(byte[] blob) {
+      return false;
+    }
+
+    public void removeAll() {
+    }
+  }
+
+  // Knows no host, and forgets the ones it is told about.
+  private static class SessionHostKeys implements HostKeyRepository {
+    public int check(String host, byte[] key) {
+      return NOT_INCLUDED;
+    }
+
+    public void add(HostKey hostkey, UserInfo ui) {
+    }
+
+    public void remove(String host, String type) {
+    }
+
+    public void remove(String host, String type, byte[] key) {
+    }
+
+    public String getKnownHostsRepositoryID() {
+      return null;
+    }
+
+    public HostKey[] getHostKey() {
+      return null;
+    }
+
+    public HostKey[] getHostKey(String host, String type) {
+      return null;
+    }
+  }
+}
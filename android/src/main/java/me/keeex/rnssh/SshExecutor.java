@@ -0,0 +1,338 @@
+package me.dylankenneally.rnssh;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Callback;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules the work started by the bridge methods.
+ *
+ * Short operations run on a shared bounded pool. Operations that belong to a
+ * client are queued on a serial lane keyed by the client key, so they reach the
+ * session in the order JavaScript issued them. They may block for a long time
+ * (connect, whole transfers, waiting for a sign callback), so lanes run on a
+ * pool of their own that grows with the number of busy lanes; being serial,
+ * each lane uses at most one thread at a time. Long-lived loops (shell
+ * readers) get their own thread from a separate pool so they never hold a
+ * lane.
+ */
+class SshExecutor {
+  private static final String LOGTAG = "RNSSHClient";
+
+  static final int POOL_SIZE = Math.max(8, Math.min(32, Runtime.getRuntime().availableProcessors() * 4));
+  static final int SHARED_QUEUE_LIMIT = 512;
+  static final int LANE_QUEUE_LIMIT = 128;
+  private static final int LATENCY_SAMPLES = 1024;
+
+  private final AtomicLong threadsCreated = new AtomicLong();
+  private final AtomicLong tasksExecuted = new AtomicLong();
+  private final AtomicLong tasksRejected = new AtomicLong();
+  private final long[] latencySamples = new long[LATENCY_SAMPLES];
+  private long latencyCount = 0;
+
+  private final ThreadPoolExecutor pool;
+  private final ThreadPoolExecutor lanePool;
+  private final ExecutorService streamPool;
+  private final ScheduledThreadPoolExecutor scheduler;
+  private final Map<String, SerialLane> lanes = new ConcurrentHashMap<>();
+
+  SshExecutor() {
+    pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(SHARED_QUEUE_LIMIT), new CountingThreadFactory("RNSSHClient-worker"));
+    pool.allowCoreThreadTimeOut(true);
+    lanePool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+      new SynchronousQueue<Runnable>(), new CountingThreadFactory("RNSSHClient-lane"));
+    streamPool = Executors.newCachedThreadPool(new CountingThreadFactory("RNSSHClient-stream"));
+    scheduler = new ScheduledThreadPoolExecutor(1, new CountingThreadFactory("RNSSHClient-timer"));
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Runs a task on the shared pool. If the pool is saturated the callback is
+   * invoked with an error instead.
+   */
+  void submit(final Runnable task, final Callback callback) {
+    final long enqueued = System.nanoTime();
+    try {
+      pool.execute(new Runnable() {
+        public void run() {
+          runTimed(task, enqueued);
+        }
+      });
+    } catch (RejectedExecutionException error) {
+      reject(callback, "Too many pending operations");
+    }
+  }
+
+  /**
+   * Runs background work on the shared pool. Returns null if the pool is
+   * saturated.
+   */
+  <T> Future<T> submit(final Callable<T> task) {
+    try {
+      return pool.submit(task);
+    } catch (RejectedExecutionException error) {
+      tasksRejected.incrementAndGet();
+      return null;
+    }
+  }
+
+  /**
+   * Runs a task on the serial lane of a client. Tasks on the same lane never
+   * overlap and run in submission order.
+   */
+  void submit(final String key, final Runnable task, final Callback callback) {
+    while (true) {
+      SerialLane lane = lanes.get(key);
+      if (lane == null) {
+        SerialLane created = new SerialLane(key);
+        lane = lanes.putIfAbsent(key, created);
+        if (lane == null) {
+          lane = created;
+        }
+      }
+      if (lane.enqueue(task, callback)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Runs a short task after a delay. Returns null after shutdown.
+   */
+  ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+    try {
+      return scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException error) {
+      return null;
+    }
+  }
+
+  /**
+   * Runs a long-lived loop on a dedicated stream thread.
+   */
+  void startStream(Runnable task) {
+    streamPool.execute(task);
+  }
+
+  /**
+   * Runs a blocking worker (such as one channel of a parallel transfer) on a
+   * stream thread.
+   */
+  <T> Future<T> startStream(Callable<T> task) {
+    return streamPool.submit(task);
+  }
+
+  /**
+   * Drops the lane of a client once it has been disconnected. Tasks already
+   * queued still run, the lane is removed when it drains.
+   */
+  void removeLane(String key) {
+    SerialLane lane = lanes.get(key);
+    if (lane != null) {
+      lane.retire();
+    }
+  }
+
+  void shutdown() {
+    pool.shutdownNow();
+    lanePool.shutdownNow();
+    streamPool.shutdownNow();
+    scheduler.shutdownNow();
+    lanes.clear();
+  }
+
+  Stats getStats() {
+    Stats stats = new Stats();
+    stats.threadsCreated = threadsCreated.get();
+    stats.tasksExecuted = tasksExecuted.get();
+    stats.tasksRejected = tasksRejected.get();
+    stats.activeThreads = pool.getActiveCount() + lanePool.getActiveCount();
+    stats.queuedTasks = pool.getQueue().size();
+    stats.lanes = lanes.size();
+    long[] sorted;
+    synchronized (latencySamples) {
+      int n = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+      sorted = Arrays.copyOf(latencySamples, n);
+    }
+    Arrays.sort(sorted);
+    stats.dispatchP50Micros = percentile(sorted, 50) / 1000;
+    stats.dispatchP99Micros = percentile(sorted, 99) / 1000;
+    return stats;
+  }
+
+  static class Stats {
+    long threadsCreated;
+    long tasksExecuted;
+    long tasksRejected;
+    int activeThreads;
+    int queuedTasks;
+    int lanes;
+    long dispatchP50Micros;
+    long dispatchP99Micros;
+  }
+
+  static long percentile(long[] sorted, int p) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+  private void runTimed(Runnable task, long enqueued) {
+    long latency = System.nanoTime() - enqueued;
+    synchronized (latencySamples) {
+      latencySamples[(int) (latencyCount % LATENCY_SAMPLES)] = latency;
+      latencyCount++;
+    }
+    tasksExecuted.incrementAndGet();
+    try {
+      task.run();
+    } catch (Exception error) {
+      Log.e(LOGTAG, "Unhandled error in task: " + error.getMessage());
+    }
+  }
+
+  private void reject(Callback callback, String message) {
+    tasksRejected.incrementAndGet();
+    Log.e(LOGTAG, message);
+    if (callback != null) {
+      callback.invoke(message);
+    }
+  }
+
+  private class SerialLane implements Runnable {
+    private final String key;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private boolean running = false;
+    private boolean retired = false;
+    private boolean removed = false;
+
+    SerialLane(String key) {
+      this.key = key;
+    }
+
+    // Returns false when the lane has already been removed from the map and
+    // the caller must look up a fresh one.
+    boolean enqueue(Runnable task, Callback callback) {
+      synchronized (this) {
+        if (removed) {
+          return false;
+        }
+        retired = false;
+        if (queue.size() >= LANE_QUEUE_LIMIT) {
+          reject(callback, "Too many pending operations for client " + key);
+          return true;
+        }
+        queue.add(new Entry(task, callback));
+        if (running) {
+          return true;
+        }
+        running = true;
+      }
+      schedule();
+      return true;
+    }
+
+    synchronized void retire() {
+      retired = true;
+      if (!running && queue.isEmpty()) {
+        removeSelf();
+      }
+    }
+
+    // Must hold the lane lock.
+    private void removeSelf() {
+      removed = true;
+      lanes.remove(key, this);
+    }
+
+    private synchronized void idle() {
+      running = false;
+      if (retired) {
+        removeSelf();
+      }
+    }
+
+    private void schedule() {
+      try {
+        lanePool.execute(this);
+      } catch (RejectedExecutionException error) {
+        ArrayDeque<Entry> dropped;
+        synchronized (this) {
+          dropped = new ArrayDeque<>(queue);
+          queue.clear();
+          idle();
+        }
+        for (Entry entry : dropped) {
+          reject(entry.callback, "Too many pending operations");
+        }
+      }
+    }
+
+    // Runs one task then hands the lane back to the pool, so an idle thread
+    // can pick up the next one.
+    public void run() {
+      Entry entry;
+      synchronized (this) {
+        entry = queue.poll();
+        if (entry == null) {
+          idle();
+          return;
+        }
+      }
+      runTimed(entry.task, entry.enqueued);
+      synchronized (this) {
+        if (queue.isEmpty()) {
+          idle();
+          return;
+        }
+      }
+      schedule();
+    }
+  }
+
+  private static class Entry {
+    final Runnable task;
+    final Callback callback;
+    final long enqueued = System.nanoTime();
+
+    Entry(Runnable task, Callback callback) {
+      this.task = task;
+      this.callback = callback;
+    }
+  }
+
+  private class CountingThreadFactory implements ThreadFactory {
+    private final String prefix;
+
+    CountingThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + "-" + threadsCreated.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package me.dylankenneally.rnssh;
+
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Debug logging of the module, with a level that can be changed at runtime.
+ *
+ * Messages below the level cost a field read: the variants taking a format
+ * and up to three arguments only format once the level is known to be
+ * enabled. Primitive arguments are still boxed by the caller, so calls on hot
+ * paths and expensive dumps such as hex() of authentication data are guarded
+ * with isEnabled(). Verbose messages may contain signatures and data to
+ * sign, so they are only logged when asked for. Errors go to Log.e directly
+ * and are always logged.
+ */
+class SshLog {
+  static final int VERBOSE = Log.VERBOSE;
+  static final int DEBUG = Log.DEBUG;
+  static final int INFO = Log.INFO;
+  static final int WARN = Log.WARN;
+  static final int NONE = Integer.MAX_VALUE;
+
+  private static final String LOGTAG = "RNSSHClient";
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static volatile int level = INFO;
+
+  static void setLevel(int level) {
+    SshLog.level = level;
+  }
+
+  /**
+   * Parses "verbose", "debug", "info", "warn" or "none".
+   */
+  static int parseLevel(String name) {
+    switch (name == null ? "" : name.toLowerCase(Locale.ROOT)) {
+      case "verbose":
+        return VERBOSE;
+      case "debug":
+        return DEBUG;
+      case "info":
+        return INFO;
+      case "warn":
+        return WARN;
+      case "none":
+        return NONE;
+      default:
+        throw new IllegalArgumentException("Unknown log level " + name);
+    }
+  }
+
+  static boolean isEnabled(int priority) {
+    return priority >= level;
+  }
+
+  static void v(String message) {
+    if (VERBOSE >= level) {
+      Log.v(LOGTAG, message);
+    }
+  }
+
+  static void v(String format, Object arg) {
+    if (VERBOSE >= level) {
+      Log.v(LOGTAG, format(format, arg));
+    }
+  }
+
+  static void v(String format, Object arg1, Object arg2) {
+    if (VERBOSE >= level) {
+      Log.v(LOGTAG, format(format, arg1, arg2));
+    }
+  }
+
+  static void v(String format, Object arg1, Object arg2, Object arg3) {
+    if (VERBOSE >= level) {
+      Log.v(LOGTAG, format(format, arg1, arg2, arg3));
+    }
+  }
+
+  static void d(String message) {
+    if (DEBUG >= level) {
+      Log.d(LOGTAG, message);
+    }
+  }
+
+  static void d(String format, Object arg) {
+    if (DEBUG >= level) {
+      Log.d(LOGTAG, format(format, arg));
+    }
+  }
+
+  static void d(String format, Object arg1, Object arg2) {
+    if (DEBUG >= level) {
+      Log.d(LOGTAG, format(format, arg1, arg2));
+    }
+  }
+
+  static void d(String format, Object arg1, Object arg2, Object arg3) {
+    if (DEBUG >= level) {
+      Log.d(LOGTAG, format(format, arg1, arg2, arg3));
+    }
+  }
+
+  static void i(String message) {
+    if (INFO >= level) {
+      Log.i(LOGTAG, message);
+    }
+  }
+
+  static void i(String format, Object arg) {
+    if (INFO >= level) {
+      Log.i(LOGTAG, format(format, arg));
+    }
+  }
+
+  static void i(String format, Object arg1, Object arg2) {
+    if (INFO >= level) {
+      Log.i(LOGTAG, format(format, arg1, arg2));
+    }
+  }
+
+  static void i(String format, Object arg1, Object arg2, Object arg3) {
+    if (INFO >= level) {
+      Log.i(LOGTAG, format(format, arg1, arg2, arg3));
+    }
+  }
+
+  static void w(String message) {
+    if (WARN >= level) {
+      Log.w(LOGTAG, message);
+    }
+  }
+
+  private static String format(String format, Object... args) {
+    return String.format(Locale.ROOT, format, args);
+  }
+
+  static String hex(byte[] bytes) {
+    char[] out = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      out[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+      out[i * 2 + 1] = HEX[bytes[i] & 0xf];
+    }
+    return new String(out);
+  }
+}
@@ -0,0 +1,74 @@
+package me.dylankenneally.rnssh;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes terminal modes for a pty request (RFC 4254 section 8): each mode is
+ * an opcode byte followed by a 32-bit value, and the list ends with TTY_OP_END.
+ * Modes are given by their RFC name, such as {ECHO: 0, VERASE: 127,
+ * TTY_OP_OSPEED: 38400}.
+ */
+class TerminalModes {
+  private static final int TTY_OP_END = 0;
+  private static final Map<String, Integer> OPCODES = new HashMap<>();
+
+  static {
+    String[] characters = {
+      "VINTR", "VQUIT", "VERASE", "VKILL", "VEOF", "VEOL", "VEOL2", "VSTART", "VSTOP",
+      "VSUSP", "VDSUSP", "VREPRINT", "VWERASE", "VLNEXT", "VFLUSH", "VSWTCH", "VSTATUS",
+      "VDISCARD",
+    };
+    for (int i = 0; i < characters.length; i++) {
+      OPCODES.put(characters[i], i + 1);
+    }
+    String[] input = {
+      "IGNPAR", "PARMRK", "INPCK", "ISTRIP", "INLCR", "IGNCR", "ICRNL", "IUCLC", "IXON",
+      "IXANY", "IXOFF", "IMAXBEL", "IUTF8",
+    };
+    for (int i = 0; i < input.length; i++) {
+      OPCODES.put(input[i], 30 + i);
+    }
+    String[] local = {
+      "ISIG", "ICANON", "XCASE", "ECHO", "ECHOE", "ECHOK", "ECHONL", "NOFLSH", "TOSTOP",
+      "IEXTEN", "ECHOCTL", "ECHOKE", "PENDIN",
+    };
+    for (int i = 0; i < local.length; i++) {
+      OPCODES.put(local[i], 50 + i);
+    }
+    String[] output = { "OPOST", "OLCUC", "ONLCR", "OCRNL", "ONOCR", "ONLRET" };
+    for (int i = 0; i < output.length; i++) {
+      OPCODES.put(output[i], 70 + i);
+    }
+    String[] control = { "CS7", "CS8", "PARENB", "PARODD" };
+    for (int i = 0; i < control.length; i++) {
+      OPCODES.put(control[i], 90 + i);
+    }
+    OPCODES.put("TTY_OP_ISPEED", 128);
+    OPCODES.put("TTY_OP_OSPEED", 129);
+  }
+
+  static byte[] encode(ReadableMap modes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReadableMapKeySetIterator names = modes.keySetIterator();
+    while (names.hasNextKey()) {
+      String name = names.nextKey();
+      Integer opcode = OPCODES.get(name);
+      if (opcode == null) {
+        throw new IllegalArgumentException("Unknown terminal mode " + name);
+      }
+      int value = modes.getInt(name);
+      out.write(opcode);
+      out.write(value >>> 24);
+      out.write(value >>> 16);
+      out.write(value >>> 8);
+      out.write(value);
+    }
+    out.write(TTY_OP_END);
+    return out.toByteArray();
+  }
+}
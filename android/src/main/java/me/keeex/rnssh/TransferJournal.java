@@ -0,0 +1,234 @@
+package me.dylankenneally.rnssh;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+
+/**
+ * On-disk record of the chunks of a transfer that have been written, so that a
+ * retry only moves the missing ones.
+ *
+ * The journal is a small line-based text file:
+ *
+ * <pre>
+ * rnssh-transfer 1
+ * source /remote/big.iso
+ * target /sdcard/Download/big.iso
+ * size 2147483648
+ * mtime 1700000000
+ * chunk 4194304
+ * done 0 4194304
+ * done 8388608 12582912
+ * </pre>
+ *
+ * The header identifies the file being read (size and modification time) and
+ * the chunk layout; a "done" line is appended once a chunk is durably written.
+ * A journal whose header does not match the current transfer is discarded, and
+ * a torn last line is ignored.
+ */
+class TransferJournal {
+  private static final String MAGIC = "rnssh-transfer 1";
+
+  private final File file;
+  private final String source;
+  private final String target;
+  private final long size;
+  private final long mtime;
+  private final int chunkSize;
+  private final int chunkCount;
+  private final BitSet done;
+  private FileOutputStream out = null;
+  private boolean tornTail = false;
+
+  private TransferJournal(File file, String source, String target, long size, long mtime, int chunkSize) {
+    this.file = file;
+    this.source = source;
+    this.target = target;
+    this.size = size;
+    this.mtime = mtime;
+    this.chunkSize = chunkSize;
+    this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+    this.done = new BitSet(chunkCount);
+  }
+
+  /**
+   * Opens the journal of a transfer. When resume is set and the file holds a
+   * journal for the same source, size, mtime and chunk size, the chunks it
+   * records are treated as done; otherwise it is started afresh.
+   */
+  static TransferJournal open(File file, String source, String target, long size, long mtime,
+                              int chunkSize, boolean resume) throws IOException {
+    TransferJournal journal = new TransferJournal(file, source, target, size, mtime, chunkSize);
+    if (!resume || !journal.load()) {
+      journal.reset();
+    }
+    return journal;
+  }
+
+  /**
+   * Journal location for a transfer whose partial file is not on this device,
+   * derived from the parts that identify it.
+   */
+  static File locate(File directory, String... identity) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String part : identity) {
+        digest.update(part.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      StringBuilder name = new StringBuilder();
+      byte[] hash = digest.digest();
+      for (int i = 0; i < 16; i++) {
+        name.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+      }
+      return new File(directory, name.append(".journal").toString());
+    } catch (NoSuchAlgorithmException error) {
+      throw new IllegalStateException(error);
+    }
+  }
+
+  int getChunkCount() {
+    return chunkCount;
+  }
+
+  long chunkStart(int chunk) {
+    return (long) chunk * chunkSize;
+  }
+
+  long chunkEnd(int chunk) {
+    return Math.min(size, chunkStart(chunk) + chunkSize);
+  }
+
+  synchronized boolean isDone(int chunk) {
+    return done.get(chunk);
+  }
+
+  synchronized long completedBytes() {
+    long bytes = 0;
+    for (int chunk = done.nextSetBit(0); chunk >= 0; chunk = done.nextSetBit(chunk + 1)) {
+      bytes += chunkEnd(chunk) - chunkStart(chunk);
+    }
+    return bytes;
+  }
+
+  /**
+   * Records a chunk as written. The caller must have made its data durable
+   * first.
+   */
+  synchronized void markDone(int chunk) throws IOException {
+    if (done.get(chunk)) {
+      return;
+    }
+    done.set(chunk);
+    if (out == null) {
+      out = new FileOutputStream(file, true);
+      if (tornTail) {
+        out.write('\n');
+        tornTail = false;
+      }
+    }
+    out.write(("done " + chunkStart(chunk) + " " + chunkEnd(chunk) + "\n").getBytes(StandardCharsets.UTF_8));
+    out.getFD().sync();
+  }
+
+  /**
+   * Forgets every chunk and rewrites the header.
+   */
+  synchronized void reset() throws IOException {
+    close();
+    done.clear();
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent.getPath());
+    }
+    out = new FileOutputStream(file, false);
+    StringBuilder header = new StringBuilder(MAGIC).append('\n');
+    header.append("source ").append(source).append('\n');
+    header.append("target ").append(target).append('\n');
+    header.append("size ").append(size).append('\n');
+    header.append("mtime ").append(mtime).append('\n');
+    header.append("chunk ").append(chunkSize).append('\n');
+    out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+    out.getFD().sync();
+  }
+
+  synchronized void close() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException ignored) {
+        // Nothing left to flush: every record is synced when written.
+      }
+      out = null;
+    }
+  }
+
+  /**
+   * Removes the journal once the transfer has completed or been abandoned.
+   */
+  synchronized void delete() {
+    close();
+    file.delete();
+  }
+
+  private boolean endsWithoutNewline() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long length = raf.length();
+      if (length == 0) {
+        return false;
+      }
+      raf.seek(length - 1);
+      return raf.read() != '\n';
+    }
+  }
+
+  // Reads the journal from disk. Returns false if there is none or it belongs
+  // to another transfer.
+  private boolean load() {
+    if (!file.isFile()) {
+      return false;
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      if (!MAGIC.equals(reader.readLine())
+          || !("source " + source).equals(reader.readLine())
+          || !("target " + target).equals(reader.readLine())
+          || !("size " + size).equals(reader.readLine())
+          || !("mtime " + mtime).equals(reader.readLine())
+          || !("chunk " + chunkSize).equals(reader.readLine())) {
+        return false;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(" ");
+        if (fields.length != 3 || !"done".equals(fields[0])) {
+          continue;
+        }
+        try {
+          long start = Long.parseLong(fields[1]);
+          long end = Long.parseLong(fields[2]);
+          if (start % chunkSize != 0 || start / chunkSize >= chunkCount) {
+            continue;
+          }
+          int chunk = (int) (start / chunkSize);
+          if (end == chunkEnd(chunk)) {
+            done.set(chunk);
+          }
+        } catch (NumberFormatException ignored) {
+          // Torn write at the end of the file.
+        }
+      }
+      tornTail = endsWithoutNewline();
+      return true;
+    } catch (IOException error) {
+      return false;
+    }
+  }
+}
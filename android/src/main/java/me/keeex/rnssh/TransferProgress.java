@@ -0,0 +1,149 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.SftpProgressMonitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte counter for a transfer, shared by its workers or handed to ChannelSftp
+ * as a progress monitor.
+ *
+ * Reports are throttled: at most one per interval, and only once enough bytes
+ * have moved since the previous one, plus a final report when the transfer
+ * completes. Each report carries the throughput since the previous report, the
+ * average throughput and an estimate of the time left.
+ */
+abstract class TransferProgress implements SftpProgressMonitor {
+  static final long DEFAULT_INTERVAL_MS = 100;
+  static final long DEFAULT_MIN_DELTA = 64 * 1024;
+
+  private final AtomicLong transferred = new AtomicLong();
+  private final long startNanos = System.nanoTime();
+  private volatile long total;
+  private long intervalNanos = DEFAULT_INTERVAL_MS * 1000000;
+  private long minDelta = DEFAULT_MIN_DELTA;
+  private long lastNanos = startNanos;
+  private long lastBytes = 0;
+  private long skipped = 0;
+  private boolean finished = false;
+
+  /**
+   * total is the expected number of bytes, or 0 when it is only known once
+   * ChannelSftp calls init().
+   */
+  TransferProgress(long total) {
+    this.total = total;
+  }
+
+  /**
+   * Sets the minimum time between two reports and the minimum number of bytes
+   * moved between them.
+   */
+  TransferProgress throttle(long intervalMs, long minDelta) {
+    this.intervalNanos = Math.max(0, intervalMs) * 1000000;
+    this.minDelta = Math.max(0, minDelta);
+    return this;
+  }
+
+  long getTotal() {
+    return total;
+  }
+
+  long getTransferred() {
+    return transferred.get();
+  }
+
+  /**
+   * Counts bytes already present from an interrupted attempt. They count
+   * towards the progress but not the throughput.
+   */
+  synchronized void skip(long bytes) {
+    transferred.addAndGet(bytes);
+    skipped += bytes;
+    lastBytes += bytes;
+  }
+
+  /**
+   * Counts bytes moved by a worker. Returns false once the transfer has been
+   * cancelled.
+   */
+  boolean add(long bytes) {
+    long done = transferred.addAndGet(bytes);
+    long now = System.nanoTime();
+    long since;
+    long delta;
+    boolean complete;
+    synchronized (this) {
+      complete = total > 0 && done >= total;
+      if (finished || !(complete || (now - lastNanos >= intervalNanos && done - lastBytes >= minDelta))) {
+        return !isCancelled();
+      }
+      finished = complete;
+      since = now - lastNanos;
+      delta = done - lastBytes;
+      lastNanos = now;
+      lastBytes = done;
+    }
+    emit(done, now, since > 0 ? delta * 1e9 / since : 0, complete);
+    return !isCancelled();
+  }
+
+  /**
+   * Sends the final report if the last bytes did not trigger one, for
+   * transfers whose size was not known or that ended early.
+   */
+  void finish() {
+    long done = transferred.get();
+    long now = System.nanoTime();
+    synchronized (this) {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      lastNanos = now;
+      lastBytes = done;
+    }
+    emit(done, now, averageBytesPerSecond(done, now), total <= 0 || done >= total);
+  }
+
+  public void init(int op, String src, String dest, long max) {
+    if (max > 0) {
+      total = max;
+    }
+  }
+
+  public boolean count(long bytes) {
+    return add(bytes);
+  }
+
+  public void end() {
+    finish();
+  }
+
+  private void emit(long done, long now, double bytesPerSecond, boolean last) {
+    long size = total;
+    long percent = last ? 100 : size > 0 ? Math.min(100, done * 100 / size) : 0;
+    double average = averageBytesPerSecond(done, now);
+    double eta = size <= 0 ? -1 : done >= size ? 0 : average > 0 ? (size - done) / average : -1;
+    report(done, size, percent, bytesPerSecond, average, eta);
+  }
+
+  private double averageBytesPerSecond(long done, long now) {
+    long elapsed = now - startNanos;
+    long moved;
+    synchronized (this) {
+      moved = done - skipped;
+    }
+    return elapsed > 0 ? moved * 1e9 / elapsed : 0;
+  }
+
+  abstract boolean isCancelled();
+
+  /**
+   * Called with the bytes moved so far, the total (0 if unknown), the
+   * percentage, the throughput since the previous report and on average in
+   * bytes per second, and the estimated seconds left (-1 if unknown).
+   */
+  abstract void report(long transferred, long total, long percent, double bytesPerSecond,
+                       double averageBytesPerSecond, double etaSeconds);
+}
@@ -0,0 +1,192 @@
+package me.dylankenneally.rnssh;
+
+import com.jcraft.jsch.Session;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Authenticated sessions shared between clients.
+ *
+ * A transport is identified by host, port, user and a fingerprint of the
+ * credential used to authenticate it, so a client only gets a session it could
+ * have opened itself. Each client holding the session counts as one reference;
+ * when the last one lets go the session stays open for the idle timeout so
+ * that a client created right after can still pick it up.
+ */
+class TransportPool {
+  private static class Shared {
+    final Session session;
+    int refCount = 1;
+    ScheduledFuture<?> teardown = null;
+
+    Shared(Session session) {
+      this.session = session;
+    }
+  }
+
+  private final SshExecutor executor;
+  private final Map<String, Shared> transports = new HashMap<>();
+  private final byte[] salt = new byte[16];
+  private volatile boolean enabled = false;
+  private volatile long idleTimeoutMs = 60 * 1000;
+
+  TransportPool(SshExecutor executor) {
+    this.executor = executor;
+    new SecureRandom().nextBytes(salt);
+  }
+
+  void configure(boolean enabled, long idleTimeoutMs) {
+    this.enabled = enabled;
+    this.idleTimeoutMs = idleTimeoutMs;
+    if (!enabled) {
+      closeIdle();
+    }
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Builds the identifier of a transport. The credential is only kept as a
+   * salted digest. Returns null when sharing is disabled.
+   */
+  String transportId(String host, int port, String username, String method, byte[]... credential) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(salt);
+      digest.update(method.getBytes(StandardCharsets.UTF_8));
+      for (byte[] part : credential) {
+        digest.update((byte) 0);
+        if (part != null) {
+          digest.update(part);
+        }
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hostPrefix(host, port, username) + hex;
+    } catch (NoSuchAlgorithmException error) {
+      return null;
+    }
+  }
+
+  /**
+   * Whether a live transport exists to this host for this user, whatever the
+   * credential.
+   */
+  synchronized boolean hasLive(String host, int port, String username) {
+    if (!enabled) {
+      return false;
+    }
+    String prefix = hostPrefix(host, port, username);
+    for (Map.Entry<String, Shared> entry : transports.entrySet()) {
+      if (entry.getKey().startsWith(prefix) && entry.getValue().session.isConnected()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the live session for a transport with a reference taken, or null.
+   */
+  synchronized Session acquire(String id) {
+    if (id == null) {
+      return null;
+    }
+    Shared shared = transports.get(id);
+    if (shared == null) {
+      return null;
+    }
+    if (!shared.session.isConnected()) {
+      transports.remove(id);
+      return null;
+    }
+    if (shared.teardown != null) {
+      shared.teardown.cancel(false);
+      shared.teardown = null;
+    }
+    shared.refCount++;
+    return shared.session;
+  }
+
+  /**
+   * Offers a newly authenticated session for sharing. Returns false if another
+   * session already serves this transport; the caller then keeps its session
+   * to itself.
+   */
+  synchronized boolean register(String id, Session session) {
+    if (id == null) {
+      return false;
+    }
+    Shared existing = transports.get(id);
+    if (existing != null && existing.session.isConnected()) {
+      return false;
+    }
+    transports.put(id, new Shared(session));
+    return true;
+  }
+
+  /**
+   * Drops one reference on a transport. The session is disconnected after the
+   * idle timeout once nobody uses it.
+   */
+  synchronized void release(final String id, Session session) {
+    final Shared shared = transports.get(id);
+    if (shared == null || shared.session != session) {
+      session.disconnect();
+      return;
+    }
+    if (--shared.refCount > 0) {
+      return;
+    }
+    if (!enabled || idleTimeoutMs <= 0) {
+      remove(id, shared);
+      return;
+    }
+    shared.teardown = executor.schedule(new Runnable() {
+      public void run() {
+        synchronized (TransportPool.this) {
+          if (shared.refCount == 0) {
+            remove(id, shared);
+          }
+        }
+      }
+    }, idleTimeoutMs);
+    if (shared.teardown == null) {
+      remove(id, shared);
+    }
+  }
+
+  synchronized void closeIdle() {
+    for (Map.Entry<String, Shared> entry : new HashMap<>(transports).entrySet()) {
+      if (entry.getValue().refCount == 0) {
+        remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void remove(String id, Shared shared) {
+    transports.remove(id, shared);
+    if (shared.teardown != null) {
+      shared.teardown.cancel(false);
+    }
+    shared.session.disconnect();
+    SshLog.d("Closed idle shared transport");
+  }
+
+  private static String hostPrefix(String host, int port, String username) {
+    return username + "@" + host + ":" + port + "/";
+  }
+}
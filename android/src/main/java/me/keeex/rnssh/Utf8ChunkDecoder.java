@@ -0,0 +1,64 @@
+package me.dylankenneally.rnssh;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a byte stream that arrives in arbitrary chunks into UTF-8 strings.
+ * A multi-byte sequence split across two chunks is held back until it is
+ * complete instead of being decoded as two replacement characters.
+ */
+class Utf8ChunkDecoder {
+  private final byte[] pending = new byte[3];
+  private int pendingLength = 0;
+
+  String decode(byte[] data, int offset, int length) {
+    byte[] bytes = data;
+    int start = offset;
+    int end = offset + length;
+    if (pendingLength > 0) {
+      bytes = new byte[pendingLength + length];
+      System.arraycopy(pending, 0, bytes, 0, pendingLength);
+      System.arraycopy(data, offset, bytes, pendingLength, length);
+      start = 0;
+      end = bytes.length;
+      pendingLength = 0;
+    }
+    int boundary = completeBoundary(bytes, start, end);
+    pendingLength = end - boundary;
+    System.arraycopy(bytes, boundary, pending, 0, pendingLength);
+    return new String(bytes, start, boundary - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns whatever is still held back, decoded with replacement characters.
+   */
+  String flush() {
+    String rest = new String(pending, 0, pendingLength, StandardCharsets.UTF_8);
+    pendingLength = 0;
+    return rest;
+  }
+
+  // Returns the end of the last complete UTF-8 sequence in bytes[start, end).
+  private static int completeBoundary(byte[] bytes, int start, int end) {
+    for (int back = 1; back <= 3 && end - back >= start; back++) {
+      int b = bytes[end - back] & 0xff;
+      if ((b & 0xc0) == 0x80) {
+        continue;
+      }
+      int needed;
+      if ((b & 0x80) == 0) {
+        needed = 1;
+      } else if ((b & 0xe0) == 0xc0) {
+        needed = 2;
+      } else if ((b & 0xf0) == 0xe0) {
+        needed = 3;
+      } else if ((b & 0xf8) == 0xf0) {
+        needed = 4;
+      } else {
+        needed = 1;
+      }
+      return needed > back ? end - back : end;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,59 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ChannelCloseSignalTest {
+  @Test
+  public void forwardsOutputWithoutClosingTarget() throws IOException {
+    final boolean[] targetClosed = { false };
+    ByteArrayOutputStream target = new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        targetClosed[0] = true;
+      }
+    };
+    ChannelCloseSignal signal = new ChannelCloseSignal(target);
+    signal.write("err".getBytes(StandardCharsets.UTF_8), 0, 3);
+    signal.write('!');
+    signal.close();
+    assertEquals("err!", target.toString("UTF-8"));
+    assertFalse(targetClosed[0]);
+    assertTrue(signal.isClosed());
+  }
+
+  @Test
+  public void acceptsNoTarget() throws IOException {
+    ChannelCloseSignal signal = new ChannelCloseSignal(null);
+    signal.write(1);
+    assertFalse(signal.isClosed());
+    signal.close();
+    assertTrue(signal.isClosed());
+  }
+
+  @Test
+  public void releasesWaiterOnClose() throws Exception {
+    final ChannelCloseSignal signal = new ChannelCloseSignal(null);
+    Thread closer = new Thread(new Runnable() {
+      public void run() {
+        try {
+          Thread.sleep(20);
+          signal.close();
+        } catch (Exception ignored) {
+          // The waiter fails on timeout.
+        }
+      }
+    });
+    closer.start();
+    signal.await();
+    assertTrue(signal.isClosed());
+    closer.join();
+  }
+}
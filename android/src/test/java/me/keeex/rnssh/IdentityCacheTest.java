@@ -0,0 +1,103 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.jcraft.jsch.Identity;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.KeyPair;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentityCacheTest {
+  private static byte[] privateKey;
+
+  private SshExecutor executor;
+  private IdentityCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    JSch jsch = new JSch();
+    if (privateKey == null) {
+      KeyPair keyPair = KeyPair.genKeyPair(jsch, KeyPair.RSA, 2048);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      keyPair.writePrivateKey(out);
+      privateKey = out.toByteArray();
+    }
+    executor = new SshExecutor();
+    cache = new IdentityCache(executor, jsch);
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+    executor.shutdown();
+  }
+
+  @Test
+  public void reusesDecryptedKey() throws Exception {
+    Identity first = cache.get(privateKey, null, null);
+    cache.release(first);
+    Identity second = cache.get(privateKey, null, null);
+    cache.release(second);
+    assertSame(first, second);
+    assertEquals(1, cache.getStats().hits);
+    assertEquals(1, cache.getStats().misses);
+  }
+
+  @Test
+  public void passphraseIsPartOfTheKey() throws Exception {
+    Identity plain = cache.get(privateKey, null, null);
+    Identity other = cache.get(privateKey, null, "unused".getBytes(StandardCharsets.UTF_8));
+    assertNotSame(plain, other);
+    assertEquals(2, cache.getStats().entries);
+    cache.release(plain);
+    cache.release(other);
+  }
+
+  @Test
+  public void clearEvictsPinnedKeys() throws Exception {
+    Identity identity = cache.get(privateKey, null, null);
+    cache.clear();
+    assertEquals(0, cache.getStats().entries);
+    assertEquals(1, cache.getStats().evictions);
+    assertNotNull(identity.getPublicKeyBlob());
+    cache.release(identity);
+
+    Identity again = cache.get(privateKey, null, null);
+    assertNotSame(identity, again);
+    cache.release(again);
+  }
+
+  @Test
+  public void evictsOverTheLimit() throws Exception {
+    cache.configure(true, 60000, 1);
+    Identity first = cache.get(privateKey, null, null);
+    Identity second = cache.get(privateKey, null, "unused".getBytes(StandardCharsets.UTF_8));
+    assertEquals(1, cache.getStats().entries);
+    assertEquals(1, cache.getStats().evictions);
+    cache.release(first);
+    cache.release(second);
+  }
+
+  @Test
+  public void disabledCacheKeepsNothing() throws Exception {
+    cache.configure(false, 60000, 1);
+    Identity identity = cache.get(privateKey, null, null);
+    cache.release(identity);
+    assertEquals(0, cache.getStats().entries);
+    assertEquals(1, cache.getStats().misses);
+  }
+
+  @Test
+  public void releaseIgnoresOtherIdentities() {
+    cache.release(null);
+  }
+}
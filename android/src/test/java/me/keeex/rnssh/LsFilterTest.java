@@ -0,0 +1,71 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LsFilterTest {
+  private static boolean matches(String glob, String name) {
+    return Pattern.compile(LsFilter.globToRegex(glob)).matcher(name).matches();
+  }
+
+  @Test
+  public void wildcards() {
+    assertTrue(matches("*.log", "app.log"));
+    assertTrue(matches("*.log", ".log"));
+    assertFalse(matches("*.log", "app.log.1"));
+    assertTrue(matches("file?.txt", "file1.txt"));
+    assertFalse(matches("file?.txt", "file10.txt"));
+  }
+
+  @Test
+  public void characterClasses() {
+    assertTrue(matches("[abc].txt", "b.txt"));
+    assertFalse(matches("[abc].txt", "d.txt"));
+    assertTrue(matches("[!abc].txt", "d.txt"));
+    assertFalse(matches("[!abc].txt", "a.txt"));
+    assertTrue(matches("[a-c]x", "bx"));
+  }
+
+  @Test
+  public void closingBracketFirstInClass() {
+    assertTrue(matches("[]a]", "]"));
+    assertTrue(matches("[]a]", "a"));
+    assertFalse(matches("[]a]", "b"));
+  }
+
+  @Test
+  public void closingBracketFirstInNegatedClass() {
+    assertTrue(matches("[!]a]", "b"));
+    assertFalse(matches("[!]a]", "]"));
+    assertFalse(matches("[!]a]", "a"));
+  }
+
+  @Test
+  public void unterminatedClassIsLiteral() {
+    assertTrue(matches("[abc", "[abc"));
+    assertFalse(matches("[abc", "a"));
+  }
+
+  @Test
+  public void emptyClassesAreLiteral() {
+    assertTrue(matches("[]", "[]"));
+    assertFalse(matches("[]", "]"));
+    assertTrue(matches("[!]", "[!]"));
+    assertTrue(matches("x[!]*", "x[!]yz"));
+    assertTrue(matches("[", "["));
+    assertTrue(matches("[!", "[!"));
+  }
+
+  @Test
+  public void regexCharactersAreLiteral() {
+    assertTrue(matches("a.b", "a.b"));
+    assertFalse(matches("a.b", "axb"));
+    assertTrue(matches("(x)+{y}|$^", "(x)+{y}|$^"));
+    assertTrue(matches("a\\b", "a\\b"));
+    assertTrue(matches("[&^\\\\]", "^"));
+  }
+}
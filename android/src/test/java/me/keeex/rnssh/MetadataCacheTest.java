@@ -0,0 +1,121 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.jcraft.jsch.SftpATTRS;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MetadataCacheTest {
+  private static SftpATTRS attrs(int permissions) throws Exception {
+    Constructor<SftpATTRS> constructor = SftpATTRS.class.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    SftpATTRS attrs = constructor.newInstance();
+    attrs.setPERMISSIONS(permissions);
+    return attrs;
+  }
+
+  @Test
+  public void normalize() {
+    assertEquals("/home/user/a", MetadataCache.normalize("a", "/home/user"));
+    assertEquals("/etc/passwd", MetadataCache.normalize("/etc/./passwd", "/home"));
+    assertEquals("/home/b", MetadataCache.normalize("../b", "/home/user"));
+    assertEquals("/", MetadataCache.normalize("../../..", "/home"));
+    assertEquals("/a/b", MetadataCache.normalize("//a//b/", "/"));
+  }
+
+  @Test
+  public void parent() {
+    assertNull(MetadataCache.parent("/"));
+    assertEquals("/", MetadataCache.parent("/a"));
+    assertEquals("/a", MetadataCache.parent("/a/b"));
+  }
+
+  @Test
+  public void countsHitsAndMisses() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 100);
+    SftpATTRS file = attrs(0100644);
+    assertNull(cache.getStat("/a"));
+    cache.putStat("/a", file);
+    assertSame(file, cache.getStat("/a"));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void servesStatFromParentListing() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 100);
+    SftpATTRS file = attrs(0100644);
+    cache.putListing("/dir", Arrays.asList(new MetadataCache.Entry("f", file)));
+    assertSame(file, cache.getStat("/dir/f"));
+    assertNull(cache.getStat("/dir/g"));
+  }
+
+  @Test
+  public void expires() throws Exception {
+    MetadataCache cache = new MetadataCache(1, 100);
+    cache.putStat("/a", attrs(0100644));
+    Thread.sleep(5);
+    assertNull(cache.getStat("/a"));
+  }
+
+  @Test
+  public void invalidateRemovesTreeAndParentListing() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 100);
+    SftpATTRS dir = attrs(040755);
+    SftpATTRS file = attrs(0100644);
+    List<MetadataCache.Entry> root = Arrays.asList(new MetadataCache.Entry("dir", dir));
+    cache.putListing("/", root);
+    cache.putListing("/dir", Arrays.asList(new MetadataCache.Entry("f", file)));
+    cache.putStat("/dir/f", file);
+    cache.putStat("/dirx", file);
+    cache.putStat("/", dir);
+    cache.invalidate("/dir");
+    assertNull(cache.getListing("/"));
+    assertNull(cache.getStat("/"));
+    assertNull(cache.getListing("/dir"));
+    assertNull(cache.getStat("/dir/f"));
+    assertSame(file, cache.getStat("/dirx"));
+  }
+
+  @Test
+  public void invalidateRemovesParentStat() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 100);
+    cache.putStat("/dir", attrs(040755));
+    cache.putStat("/dir/f", attrs(0100644));
+    cache.invalidate("/dir/f");
+    assertNull(cache.getStat("/dir"));
+    assertNull(cache.getStat("/dir/f"));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 2);
+    cache.putStat("/a", attrs(0100644));
+    cache.putStat("/b", attrs(0100644));
+    cache.getStat("/a");
+    cache.putStat("/c", attrs(0100644));
+    assertNull(cache.getStat("/b"));
+    assertNotNull(cache.getStat("/a"));
+    assertNotNull(cache.getStat("/c"));
+  }
+
+  @Test
+  public void skipsListingsOverTheLimit() throws Exception {
+    MetadataCache cache = new MetadataCache(60000, 2);
+    List<MetadataCache.Entry> listing = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      listing.add(new MetadataCache.Entry("f" + i, attrs(0100644)));
+    }
+    cache.putListing("/dir", listing);
+    assertNull(cache.getListing("/dir"));
+  }
+}
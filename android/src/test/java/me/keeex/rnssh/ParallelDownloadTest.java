@@ -0,0 +1,93 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ParallelDownloadTest {
+  @Test
+  public void awaitAllWaitsForOtherWorkersAfterAFailure() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    try {
+      final CountDownLatch stopRequested = new CountDownLatch(1);
+      final AtomicBoolean finished = new AtomicBoolean(false);
+      final AtomicInteger stops = new AtomicInteger();
+      List<Future<Void>> futures = new ArrayList<>();
+      futures.add(pool.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          throw new IOException("worker failed");
+        }
+      }));
+      futures.add(pool.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          // Like a blocking SFTP write, this ignores interrupts.
+          while (true) {
+            try {
+              if (stopRequested.await(1, TimeUnit.SECONDS)) {
+                break;
+              }
+            } catch (InterruptedException ignored) {
+              // Keep going.
+            }
+          }
+          Thread.sleep(50);
+          finished.set(true);
+          return null;
+        }
+      }));
+      try {
+        ParallelDownload.awaitAll(futures, new Runnable() {
+          public void run() {
+            stops.incrementAndGet();
+            stopRequested.countDown();
+          }
+        });
+        fail("Expected the worker failure");
+      } catch (IOException error) {
+        assertEquals("worker failed", error.getMessage());
+      }
+      assertTrue(finished.get());
+      assertEquals(1, stops.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void awaitAllDoesNotStopOnSuccess() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    try {
+      final AtomicInteger stops = new AtomicInteger();
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(pool.submit(new Callable<Integer>() {
+          public Integer call() {
+            return 1;
+          }
+        }));
+      }
+      ParallelDownload.awaitAll(futures, new Runnable() {
+        public void run() {
+          stops.incrementAndGet();
+        }
+      });
+      assertEquals(0, stops.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
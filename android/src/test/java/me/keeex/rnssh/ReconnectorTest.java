@@ -0,0 +1,76 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ReconnectorTest {
+  private static void assertBetween(long low, long high, long value) {
+    assertTrue(value + " not in [" + low + ", " + high + "]", value >= low && value <= high);
+  }
+
+  @Test
+  public void backoffDoublesWithJitter() {
+    Reconnector reconnector = new Reconnector(10, 1000, 30000);
+    for (int i = 0; i < 100; i++) {
+      assertBetween(500, 1000, reconnector.backoff(1));
+      assertBetween(1000, 2000, reconnector.backoff(2));
+      assertBetween(2000, 4000, reconnector.backoff(3));
+    }
+  }
+
+  @Test
+  public void backoffIsCapped() {
+    Reconnector reconnector = new Reconnector(10, 1000, 30000);
+    for (int failures = 6; failures < 100; failures++) {
+      assertBetween(15000, 30000, reconnector.backoff(failures));
+    }
+  }
+
+  @Test
+  public void zeroDelay() {
+    Reconnector reconnector = new Reconnector(3, 0, 0);
+    assertEquals(0, reconnector.backoff(1));
+    assertEquals(0, reconnector.backoff(50));
+  }
+
+  @Test
+  public void maxDelayIsAtLeastInitialDelay() {
+    Reconnector reconnector = new Reconnector(0, 2000, 100);
+    assertEquals(1, reconnector.maxAttempts);
+    assertEquals(2000, reconnector.maxDelayMs);
+  }
+
+  @Test
+  public void runStopsAfterMaxAttempts() {
+    Reconnector reconnector = new Reconnector(3, 1, 1);
+    final List<String> events = new ArrayList<>();
+    assertTrue(reconnector.begin());
+    assertFalse(reconnector.begin());
+    boolean connected = reconnector.run(new Reconnector.Attempt() {
+      public void connect() throws Exception {
+        throw new Exception("refused");
+      }
+    }, new Reconnector.Listener() {
+      public void reconnecting(int attempt, long delayMs) {
+        events.add("reconnecting " + attempt);
+      }
+
+      public void reconnected(int attempts, long downtimeMs, long connectMs) {
+        events.add("reconnected");
+      }
+
+      public void failed(int attempts, String error) {
+        events.add("failed " + attempts + " " + error);
+      }
+    });
+    assertFalse(connected);
+    assertFalse(reconnector.isRunning());
+    assertEquals("[reconnecting 1, reconnecting 2, reconnecting 3, failed 3 refused]", events.toString());
+  }
+}
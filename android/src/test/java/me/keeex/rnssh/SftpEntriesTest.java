@@ -0,0 +1,31 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class SftpEntriesTest {
+  @Test
+  public void iso8601() {
+    SftpEntries entries = new SftpEntries();
+    assertEquals("1970-01-01T00:00:00Z", entries.iso8601(0));
+    assertEquals("2000-02-29T12:34:56Z", entries.iso8601(951827696L));
+    assertEquals("1969-12-31T23:59:59Z", entries.iso8601(-1));
+    assertEquals("2106-02-07T06:28:15Z", entries.iso8601(0xffffffffL));
+  }
+
+  @Test
+  public void iso8601MatchesSimpleDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    SftpEntries entries = new SftpEntries();
+    for (long seconds = 0; seconds < 0xffffffffL; seconds += 7919L * 3607L) {
+      assertEquals(format.format(new Date(seconds * 1000)), entries.iso8601(seconds));
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.Callback;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ShellWriterTest {
+  private static class Counter implements Callback {
+    final AtomicInteger calls = new AtomicInteger();
+
+    public void invoke(Object... args) {
+      calls.incrementAndGet();
+    }
+  }
+
+  private static ShellWriter start(ByteArrayOutputStream out) {
+    ShellWriter writer = new ShellWriter(out);
+    Thread thread = new Thread(writer);
+    thread.setDaemon(true);
+    thread.start();
+    return writer;
+  }
+
+  private static void awaitSize(ByteArrayOutputStream out, int size) throws InterruptedException {
+    for (int i = 0; i < 200 && out.size() < size; i++) {
+      Thread.sleep(5);
+    }
+    assertEquals(size, out.size());
+  }
+
+  @Test
+  public void encodesSurrogatePairSplitAcrossBatches() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ShellWriter writer = start(out);
+    Counter first = new Counter();
+    Counter second = new Counter();
+    assertTrue(writer.write("a\uD83D", first));
+    awaitSize(out, 1);
+    Thread.sleep(20);
+    assertEquals(1, out.size());
+    assertEquals(0, first.calls.get());
+
+    assertTrue(writer.write("\uDE00b", second));
+    writer.close();
+    assertArrayEquals("a😀b".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    assertEquals(1, first.calls.get());
+    assertEquals(1, second.calls.get());
+  }
+
+  @Test
+  public void sendsLoneHighSurrogateOnClose() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ShellWriter writer = start(out);
+    Counter callback = new Counter();
+    assertTrue(writer.write("x\uD83D", callback));
+    awaitSize(out, 1);
+    writer.close();
+    assertArrayEquals("x?".getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    assertEquals(1, callback.calls.get());
+  }
+}
@@ -0,0 +1,187 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.Callback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SshExecutorTest {
+  private SshExecutor executor;
+
+  @Before
+  public void setUp() {
+    executor = new SshExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private static Runnable countDown(final CountDownLatch latch) {
+    return new Runnable() {
+      public void run() {
+        latch.countDown();
+      }
+    };
+  }
+
+  @Test
+  public void laneRunsTasksInOrderWithoutOverlap() throws InterruptedException {
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(100);
+    for (int i = 0; i < 100; i++) {
+      final int index = i;
+      executor.submit("client", new Runnable() {
+        public void run() {
+          if (running.incrementAndGet() > 1) {
+            overlaps.incrementAndGet();
+          }
+          order.add(index);
+          running.decrementAndGet();
+          done.countDown();
+        }
+      }, null);
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(0, overlaps.get());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  @Test
+  public void lanesRunConcurrently() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch other = new CountDownLatch(1);
+    executor.submit("a", new Runnable() {
+      public void run() {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, null);
+    executor.submit("b", countDown(other), null);
+    assertTrue(other.await(10, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+  // Lane tasks such as a download can block for minutes. With more clients
+  // blocked than POOL_SIZE, other clients and the shared pool must still be
+  // served promptly.
+  @Test
+  public void blockedLanesDoNotDelayOtherWork() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final int blocked = SshExecutor.POOL_SIZE * 2;
+    final CountDownLatch started = new CountDownLatch(blocked);
+    try {
+      for (int i = 0; i < blocked; i++) {
+        executor.submit("blocked-" + i, new Runnable() {
+          public void run() {
+            started.countDown();
+            try {
+              release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }, null);
+      }
+      assertTrue(started.await(2, TimeUnit.SECONDS));
+
+      CountDownLatch lane = new CountDownLatch(1);
+      CountDownLatch shared = new CountDownLatch(1);
+      executor.submit("other", countDown(lane), null);
+      executor.submit(countDown(shared), null);
+      assertTrue(lane.await(1, TimeUnit.SECONDS));
+      assertTrue(shared.await(1, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void rejectsTasksOverTheLaneLimit() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    executor.submit("client", new Runnable() {
+      public void run() {
+        started.countDown();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, null);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    final AtomicInteger rejected = new AtomicInteger();
+    Callback callback = new Callback() {
+      public void invoke(Object... args) {
+        rejected.incrementAndGet();
+      }
+    };
+    for (int i = 0; i < SshExecutor.LANE_QUEUE_LIMIT + 5; i++) {
+      executor.submit("client", new Runnable() {
+        public void run() {
+        }
+      }, callback);
+    }
+    assertEquals(5, rejected.get());
+    release.countDown();
+  }
+
+  @Test
+  public void retiredLaneIsRemovedOnceDrained() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    executor.submit("client", countDown(done), null);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.removeLane("client");
+    for (int i = 0; i < 100 && executor.getStats().lanes > 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, executor.getStats().lanes);
+
+    CountDownLatch again = new CountDownLatch(1);
+    executor.submit("client", countDown(again), null);
+    assertTrue(again.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void taskErrorsDoNotStopTheLane() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    executor.submit("client", new Runnable() {
+      public void run() {
+        throw new IllegalStateException("boom");
+      }
+    }, null);
+    executor.submit("client", countDown(done), null);
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertFalse(executor.getStats().tasksExecuted < 2);
+  }
+
+  @Test
+  public void percentile() {
+    assertEquals(0, SshExecutor.percentile(new long[0], 50));
+    long[] sorted = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+    assertEquals(5, SshExecutor.percentile(sorted, 50));
+    assertEquals(10, SshExecutor.percentile(sorted, 99));
+    assertEquals(1, SshExecutor.percentile(sorted, 0));
+  }
+}
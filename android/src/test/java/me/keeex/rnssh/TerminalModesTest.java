@@ -0,0 +1,40 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.Test;
+
+public class TerminalModesTest {
+  @Test
+  public void emptyModes() {
+    assertArrayEquals(new byte[] { 0 }, TerminalModes.encode(new JavaOnlyMap()));
+  }
+
+  @Test
+  public void encodesOpcodesAndValues() {
+    byte[] encoded = TerminalModes.encode(JavaOnlyMap.of("ECHO", 0, "VERASE", 127, "TTY_OP_OSPEED", 38400));
+    assertArrayEquals(new byte[] {
+      53, 0, 0, 0, 0,
+      3, 0, 0, 0, 127,
+      (byte) 129, 0, 0, (byte) 0x96, 0,
+      0,
+    }, encoded);
+  }
+
+  @Test
+  public void opcodeRanges() {
+    assertArrayEquals(new byte[] { 1, 0, 0, 0, 3, 0 }, TerminalModes.encode(JavaOnlyMap.of("VINTR", 3)));
+    assertArrayEquals(new byte[] { 42, 0, 0, 0, 1, 0 }, TerminalModes.encode(JavaOnlyMap.of("IUTF8", 1)));
+    assertArrayEquals(new byte[] { 72, 0, 0, 0, 1, 0 }, TerminalModes.encode(JavaOnlyMap.of("ONLCR", 1)));
+    assertArrayEquals(new byte[] { 91, 0, 0, 0, 1, 0 }, TerminalModes.encode(JavaOnlyMap.of("CS8", 1)));
+    assertArrayEquals(new byte[] { (byte) 128, 0, 0, 0x25, (byte) 0x80, 0 },
+      TerminalModes.encode(JavaOnlyMap.of("TTY_OP_ISPEED", 9600)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsUnknownMode() {
+    TerminalModes.encode(JavaOnlyMap.of("NOPE", 1));
+  }
+}
@@ -0,0 +1,120 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransferJournalTest {
+  private File directory;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("journal").toFile();
+    file = new File(directory, "transfer.journal");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+    directory.delete();
+  }
+
+  private TransferJournal open(long size, boolean resume) throws IOException {
+    return TransferJournal.open(file, "/remote/big.iso", "/local/big.iso", size, 1700000000L, 100, resume);
+  }
+
+  @Test
+  public void chunkLayout() throws IOException {
+    TransferJournal journal = open(250, false);
+    assertEquals(3, journal.getChunkCount());
+    assertEquals(200, journal.chunkStart(2));
+    assertEquals(250, journal.chunkEnd(2));
+    journal.close();
+  }
+
+  @Test
+  public void resumesRecordedChunks() throws IOException {
+    TransferJournal journal = open(250, false);
+    journal.markDone(0);
+    journal.markDone(2);
+    journal.close();
+
+    journal = open(250, true);
+    assertTrue(journal.isDone(0));
+    assertFalse(journal.isDone(1));
+    assertTrue(journal.isDone(2));
+    assertEquals(150, journal.completedBytes());
+    journal.close();
+  }
+
+  @Test
+  public void startsAfreshWithoutResume() throws IOException {
+    TransferJournal journal = open(250, false);
+    journal.markDone(0);
+    journal.close();
+
+    journal = open(250, false);
+    assertFalse(journal.isDone(0));
+    assertEquals(0, journal.completedBytes());
+    journal.close();
+  }
+
+  @Test
+  public void discardsJournalOfAnotherFile() throws IOException {
+    TransferJournal journal = open(250, false);
+    journal.markDone(0);
+    journal.close();
+
+    journal = open(300, true);
+    assertFalse(journal.isDone(0));
+    journal.close();
+  }
+
+  @Test
+  public void ignoresTornTail() throws IOException {
+    TransferJournal journal = open(250, false);
+    journal.markDone(0);
+    journal.close();
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write("done 1".getBytes(StandardCharsets.UTF_8));
+    }
+
+    journal = open(250, true);
+    assertTrue(journal.isDone(0));
+    assertFalse(journal.isDone(1));
+    journal.markDone(1);
+    journal.close();
+
+    journal = open(250, true);
+    assertTrue(journal.isDone(1));
+    journal.close();
+  }
+
+  @Test
+  public void deleteRemovesFile() throws IOException {
+    TransferJournal journal = open(250, false);
+    assertTrue(file.isFile());
+    journal.delete();
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void locateIsStable() {
+    File a = TransferJournal.locate(directory, "host", "/remote/big.iso");
+    assertEquals(a, TransferJournal.locate(directory, "host", "/remote/big.iso"));
+    assertNotEquals(a, TransferJournal.locate(directory, "host/", "remote/big.iso"));
+    assertTrue(a.getName().endsWith(".journal"));
+  }
+}
@@ -0,0 +1,104 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TransferProgressTest {
+  private static class Recorder extends TransferProgress {
+    final List<long[]> reports = new ArrayList<>();
+    boolean cancelled = false;
+
+    Recorder(long total) {
+      super(total);
+    }
+
+    boolean isCancelled() {
+      return cancelled;
+    }
+
+    void report(long transferred, long total, long percent, double bytesPerSecond,
+                double averageBytesPerSecond, double etaSeconds) {
+      reports.add(new long[] { transferred, total, percent, (long) etaSeconds });
+    }
+  }
+
+  @Test
+  public void throttlesReports() {
+    Recorder progress = new Recorder(1000);
+    progress.throttle(60000, 0);
+    for (int i = 0; i < 9; i++) {
+      assertTrue(progress.add(100));
+    }
+    assertEquals(0, progress.reports.size());
+    progress.add(100);
+    assertEquals(1, progress.reports.size());
+    assertEquals(1000, progress.reports.get(0)[0]);
+    assertEquals(100, progress.reports.get(0)[2]);
+    assertEquals(0, progress.reports.get(0)[3]);
+  }
+
+  @Test
+  public void reportsOnceDeltaIsReached() {
+    Recorder progress = new Recorder(1000);
+    progress.throttle(0, 300);
+    progress.add(200);
+    assertEquals(0, progress.reports.size());
+    progress.add(200);
+    assertEquals(1, progress.reports.size());
+    assertEquals(40, progress.reports.get(0)[2]);
+  }
+
+  @Test
+  public void finishReportsOnce() {
+    Recorder progress = new Recorder(0);
+    progress.throttle(60000, 0);
+    progress.add(500);
+    progress.finish();
+    progress.finish();
+    assertEquals(1, progress.reports.size());
+    assertEquals(500, progress.reports.get(0)[0]);
+    assertEquals(100, progress.reports.get(0)[2]);
+    assertEquals(-1, progress.reports.get(0)[3]);
+  }
+
+  @Test
+  public void finishAfterCompletionIsSilent() {
+    Recorder progress = new Recorder(100);
+    progress.add(100);
+    progress.finish();
+    assertEquals(1, progress.reports.size());
+  }
+
+  @Test
+  public void skippedBytesCount() {
+    Recorder progress = new Recorder(1000);
+    progress.skip(600);
+    assertEquals(600, progress.getTransferred());
+    progress.add(400);
+    assertEquals(1, progress.reports.size());
+    assertEquals(1000, progress.reports.get(0)[0]);
+  }
+
+  @Test
+  public void initSetsTotal() {
+    Recorder progress = new Recorder(0);
+    progress.init(0, "a", "b", 4096);
+    assertEquals(4096, progress.getTotal());
+    progress.init(0, "a", "b", -1);
+    assertEquals(4096, progress.getTotal());
+  }
+
+  @Test
+  public void countStopsWhenCancelled() {
+    Recorder progress = new Recorder(1000);
+    assertTrue(progress.count(10));
+    progress.cancelled = true;
+    assertFalse(progress.count(10));
+  }
+}
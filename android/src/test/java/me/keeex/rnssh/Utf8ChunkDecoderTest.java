@@ -0,0 +1,49 @@
+package me.dylankenneally.rnssh;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class Utf8ChunkDecoderTest {
+  @Test
+  public void decodesCompleteChunks() {
+    Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+    byte[] bytes = "héllo".getBytes(StandardCharsets.UTF_8);
+    assertEquals("héllo", decoder.decode(bytes, 0, bytes.length));
+    assertEquals("", decoder.flush());
+  }
+
+  @Test
+  public void holdsBackSplitSequences() {
+    String text = "a€b😀c";
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    for (int split = 0; split <= bytes.length; split++) {
+      Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+      String decoded = decoder.decode(bytes, 0, split) + decoder.decode(bytes, split, bytes.length - split);
+      assertEquals("split at " + split, text, decoded);
+    }
+  }
+
+  @Test
+  public void decodesByteByByte() {
+    String text = "ü€😀";
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+    StringBuilder decoded = new StringBuilder();
+    for (int i = 0; i < bytes.length; i++) {
+      decoded.append(decoder.decode(bytes, i, 1));
+    }
+    assertEquals(text, decoded.toString());
+  }
+
+  @Test
+  public void flushReplacesIncompleteSequence() {
+    byte[] bytes = "€".getBytes(StandardCharsets.UTF_8);
+    Utf8ChunkDecoder decoder = new Utf8ChunkDecoder();
+    assertEquals("", decoder.decode(bytes, 0, 2));
+    assertEquals("�", decoder.flush());
+    assertEquals("", decoder.flush());
+  }
+}
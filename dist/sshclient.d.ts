@@ -1,6 +1,13 @@
 import { NativeEventEmitter } from 'react-native';
 declare let RNSSHClient: any;
 declare let RNSSHClientEmitter: NativeEventEmitter;
+interface NativeEvent {
+    name: string;
+    key: string;
+    /** Channel that sent the event, for Shell, ExecOutput and ChannelClosed (Android only). */
+    channelId?: string;
+    value: any;
+}
 /**
  * Represents the types of PTY (pseudo-terminal) for SSH connections.
  */
@@ -116,12 +123,336 @@ export type EventHandler = (value: any, event: any) => void;
 export interface LsResult {
     filename: string;
     isDirectory: boolean;
+    /** Modification time; ISO 8601 UTC on Android. */
     modificationDate: string;
+    /** Last access time; ISO 8601 UTC on Android. */
     lastAccess: string;
     fileSize: number;
     ownerUserID: number;
     ownerGroupID: number;
+    /** Mode bits on Android, `ls -l` style string on iOS. */
+    permissions?: number | string;
     flags: number;
+    /** Modification time in epoch seconds (Android only). */
+    mtime?: number;
+    /** Last access time in epoch seconds (Android only). */
+    atime?: number;
+}
+/**
+ * Options for startShellWithOptions().
+ */
+export interface ShellOptions {
+    /**
+     * How long output is collected after its first byte before a 'Shell' event
+     * is sent, in milliseconds (default 16).
+     */
+    frameMs?: number;
+    /** Largest 'Shell' event, in bytes (default 65536). */
+    maxBatchBytes?: number;
+    /** Terminal width in characters. Used together with `rows`. */
+    cols?: number;
+    /** Terminal height in lines. Used together with `cols`. */
+    rows?: number;
+    /** Terminal width in pixels (default 0). */
+    width?: number;
+    /** Terminal height in pixels (default 0). */
+    height?: number;
+    /**
+     * Terminal modes by their RFC 4254 name, such as `{ ECHO: 1, IUTF8: 1,
+     * TTY_OP_OSPEED: 38400 }`.
+     */
+    modes?: Record<string, number>;
+    /**
+     * Environment variables for the shell. Most servers only accept the ones
+     * listed in their AcceptEnv setting (usually LANG and LC_*).
+     */
+    env?: Record<string, string>;
+}
+/**
+ * Options for sftpLsStream().
+ */
+export interface LsStreamOptions {
+    /** Entries per 'LsPage' event (default 500). */
+    pageSize?: number;
+    /** Glob matched against the file name (`*`, `?` and `[...]`). */
+    glob?: string;
+    /** Only list entries of this type. */
+    type?: 'file' | 'directory' | 'link';
+    /** Only list entries modified at or after this time, in epoch seconds. */
+    modifiedAfter?: number;
+    /** Only list entries modified before this time, in epoch seconds. */
+    modifiedBefore?: number;
+}
+/**
+ * Represents the result of sftpLsStream().
+ */
+export interface LsStreamResult {
+    /** Number of 'LsPage' events sent. */
+    pages: number;
+    /** Entries that passed the filters. */
+    matched: number;
+    /** Entries read from the server. */
+    scanned: number;
+    /** True if the listing was stopped by sftpCancelLs(). */
+    cancelled: boolean;
+}
+/**
+ * Scheduling statistics of the native executor (Android only).
+ */
+export interface ExecutorStats {
+    threadsCreated: number;
+    tasksExecuted: number;
+    tasksRejected: number;
+    activeThreads: number;
+    queuedTasks: number;
+    lanes: number;
+    dispatchP50Micros: number;
+    dispatchP99Micros: number;
+}
+/**
+ * Session defaults for setSessionDefaults(). Algorithm lists are in order of
+ * preference, using the names of the SSH protocol.
+ */
+export interface SessionDefaults {
+    /** E.g. ['aes256-gcm@openssh.com', 'aes128-ctr']. */
+    ciphers?: string[];
+    /** Key exchange algorithms, e.g. ['curve25519-sha256']. */
+    kex?: string[];
+    /** E.g. ['hmac-sha2-256-etm@openssh.com']. */
+    macs?: string[];
+    /** Accepted server host key types, e.g. ['ssh-ed25519']. */
+    hostKeyAlgorithms?: string[];
+    /** Whether to offer zlib compression (default false). */
+    compression?: boolean;
+    /** Compression level, 1 to 9 (default 6). */
+    compressionLevel?: number;
+    /** Timeout of the TCP connection and handshake (default 30000). */
+    connectTimeoutMs?: number;
+}
+/**
+ * Counters of the private key cache (Android only).
+ */
+export interface IdentityCacheStats {
+    hits: number;
+    misses: number;
+    evictions: number;
+    entries: number;
+}
+/**
+ * Sign callback round trips since the app started (Android only).
+ */
+export interface SignStats {
+    requests: number;
+    signed: number;
+    failed: number;
+    timedOut: number;
+    /** Requests failed because their client was disconnected. */
+    cancelled: number;
+    pending: number;
+    latencyP50Ms: number;
+    latencyP99Ms: number;
+    latencyMaxMs: number;
+}
+/**
+ * Duration of each phase of the last authentication attempt (Android only).
+ */
+export interface ConnectionTimings {
+    method: string;
+    /** TCP connect time. */
+    tcpMs: number;
+    /** True if the TCP connection was opened ahead of authentication. */
+    preparedSocket: boolean;
+    /** Key exchange time. */
+    kexMs: number;
+    /** User authentication time. */
+    userauthMs: number;
+    /** Wall time of the SSH handshake, excluding a prepared TCP connect. */
+    connectMs: number;
+    /** Number of automatic reconnections so far. */
+    reconnects: number;
+    /** Time from losing the connection to being reconnected, for the last reconnection. */
+    lastReconnectMs: number;
+}
+/**
+ * Options for setAutoReconnect().
+ */
+export interface ReconnectOptions {
+    /** Attempts before giving up and sending 'Disconnected' (default 8). */
+    maxAttempts?: number;
+    /** Delay before the second attempt; it doubles after each failure (default 500). */
+    initialDelayMs?: number;
+    /** Longest delay between two attempts (default 30000). */
+    maxDelayMs?: number;
+}
+/**
+ * Level of the native debug logs, see setLogLevel().
+ */
+export type LogLevel = 'verbose' | 'debug' | 'info' | 'warn' | 'none';
+/**
+ * Options for executeWithOptions().
+ */
+export interface ExecOptions {
+    /** Maximum number of bytes kept per output stream (default 8 MiB). Must not be negative. */
+    maxCapture?: number;
+    /** Emit output as 'ExecOutput' events instead of capturing it. */
+    stream?: boolean;
+}
+/**
+ * Represents the result of executeWithOptions().
+ */
+export interface ExecResult {
+    /** Captured standard output, absent in stream mode. */
+    stdout?: string;
+    /** Captured standard error, absent in stream mode. */
+    stderr?: string;
+    /** True if output beyond maxCapture was dropped. */
+    truncated?: boolean;
+    /** Exit status of the command, -1 if the server did not report one. */
+    exitStatus: number;
+    /** True if the command was stopped by cancelExec(). */
+    cancelled?: boolean;
+}
+/**
+ * Options for sftpDownloadParallel().
+ */
+export interface ParallelDownloadOptions {
+    /** Number of SFTP channels used at once (default 4, at most 8). */
+    channels?: number;
+    /** Size of each range in bytes (default 4 MiB). */
+    chunkSize?: number;
+    /** Outstanding read requests per channel (default 32). */
+    bulkRequests?: number;
+    /** Compare the SHA-256 of the result with `sha256sum` on the server. */
+    verify?: boolean;
+    /**
+     * Keep the ranges fetched by an interrupted attempt if the remote file is
+     * unchanged (default true).
+     */
+    resume?: boolean;
+}
+/**
+ * Represents the result of sftpDownloadParallel().
+ */
+export interface ParallelDownloadResult {
+    path: string;
+    size: number;
+    /** Bytes kept from an interrupted attempt. */
+    resumed: number;
+    /** Average throughput in MB/s. */
+    mbps: number;
+    /** SHA-256 of the downloaded file, when `verify` was requested. */
+    sha256?: string;
+    /** False if the server could not compute a checksum to compare with. */
+    verified?: boolean;
+}
+/**
+ * Payload of the `DownloadProgress` and `UploadProgress` events on Android. The
+ * `value` field holds the percentage as a string, as on iOS.
+ */
+export interface TransferProgressEvent extends NativeEvent {
+    /** Bytes transferred so far. */
+    bytes: number;
+    /** Size of the file in bytes, or 0 if unknown. */
+    total: number;
+    /** Throughput since the previous event, in bytes per second. */
+    bytesPerSecond: number;
+    /** Throughput since the start of the transfer, in bytes per second. */
+    averageBytesPerSecond: number;
+    /** Average throughput in MB/s. */
+    mbps: number;
+    /** Estimated seconds left, or -1 if unknown. */
+    eta: number;
+}
+/**
+ * Options for sftpUploadParallel().
+ */
+export interface ParallelUploadOptions {
+    /** Number of SFTP channels used at once (default 4, at most 8). */
+    channels?: number;
+    /** Size of each range in bytes (default 4 MiB). */
+    chunkSize?: number;
+    /**
+     * Keep the ranges sent by an interrupted attempt if the local file is
+     * unchanged (default true).
+     */
+    resume?: boolean;
+}
+/**
+ * Represents the result of sftpUploadParallel().
+ */
+export interface ParallelUploadResult {
+    size: number;
+    /** Bytes kept from an interrupted attempt. */
+    resumed: number;
+    /** Average throughput in MB/s. */
+    mbps: number;
+}
+/**
+ * One operation of sftpBatch().
+ */
+export type SftpOperation = {
+    op: 'rm' | 'rmdir' | 'mkdir' | 'stat';
+    path: string;
+} | {
+    op: 'rename';
+    path: string;
+    newPath: string;
+} | {
+    op: 'chmod';
+    path: string;
+    permissions: number;
+};
+/**
+ * Options for sftpBatch().
+ */
+export interface SftpBatchOptions {
+    /**
+     * Number of SFTP channels used at once (default 1, at most 8). Only use
+     * more than one for operations that do not depend on each other.
+     */
+    concurrency?: number;
+    /** Skip the operations that follow the first failure. */
+    stopOnError?: boolean;
+}
+/**
+ * Result of one operation of sftpBatch().
+ */
+export interface SftpOperationResult {
+    ok: boolean;
+    /** Why the operation failed, or 'Skipped'. */
+    error?: string;
+    /** Attributes of the path, for stat. */
+    stat?: LsResult;
+}
+/**
+ * Represents the result of sftpRmRecursive().
+ */
+export interface RmRecursiveResult {
+    files: number;
+    directories: number;
+}
+/**
+ * Options for sftpSync().
+ */
+export interface SyncOptions {
+    /** 'upload' mirrors the local tree to the server (default), 'download' the other way. */
+    direction?: 'upload' | 'download';
+    /** Number of files transferred at once (default 4, at most 8). */
+    workers?: number;
+    /** Compare files of equal size by SHA-256 instead of modification time. */
+    checksum?: boolean;
+}
+/**
+ * Represents the result of sftpSync().
+ */
+export interface SyncResult {
+    filesScanned: number;
+    filesSent: number;
+    filesSkipped: number;
+    directoriesCreated: number;
+    bytesSent: number;
+    bytesSkipped: number;
+    seconds: number;
 }
 /**
  * Represents a key pair used for SSH authentication.
@@ -180,6 +511,127 @@ export default class SSHClient {
         keySize: number;
     }>;
     static generateKeyPair(type: string, passphrase?: string, keySize?: number, comment?: string): Promise<genKeyPair>;
+    /**
+     * Retrieves the scheduling statistics of the native executor.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the executor statistics.
+     */
+    static getExecutorStats(): Promise<ExecutorStats>;
+    /**
+     * Sets how long a sign callback may take to return its signature before
+     * authentication fails. Pending sign callbacks of a client also fail as
+     * soon as it is disconnected.
+     *
+     * Only available on Android.
+     * @param timeoutMs - Timeout in milliseconds (default 30000).
+     */
+    static setSignTimeout(timeoutMs?: number): void;
+    /**
+     * Gets counters and round-trip latencies of sign callbacks.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the sign callback statistics.
+     */
+    static getSignStats(): Promise<SignStats>;
+    /**
+     * Enables or disables transport sharing. When enabled, clients that
+     * authenticate to the same host and user with the same password or private
+     * key share one SSH connection; each client only opens its own channels.
+     * A shared connection no client uses any more is closed after
+     * `idleTimeoutMs`. Sign callback authentication is never shared.
+     *
+     * Only available on Android.
+     * @param enabled - Whether transports are shared.
+     * @param idleTimeoutMs - How long an unused shared transport stays open.
+     */
+    static setTransportSharing(enabled: boolean, idleTimeoutMs?: number): void;
+    /**
+     * Configures how dead connections are detected, for connections
+     * authenticated from now on. When nothing has been received for
+     * `keepaliveIntervalMs`, a keepalive is sent; after `keepaliveCountMax`
+     * unanswered keepalives the connection is dropped, pending operations fail
+     * and a 'Disconnected' event is sent (within `monitorIntervalMs`).
+     * An interval of 0 disables keepalives.
+     *
+     * Only available on Android.
+     * @param keepaliveIntervalMs - Idle time before a keepalive (default 15000).
+     * @param keepaliveCountMax - Unanswered keepalives before disconnecting (default 3).
+     * @param monitorIntervalMs - How often connections are checked (default 5000).
+     */
+    static setSessionHealth(keepaliveIntervalMs?: number, keepaliveCountMax?: number, monitorIntervalMs?: number): void;
+    /**
+     * Sets the level of the native debug logs. Messages below the level are
+     * not formatted at all. 'verbose' also logs signatures and the data being
+     * signed, so only use it while debugging.
+     *
+     * Only available on Android.
+     * @param level - One of 'verbose', 'debug', 'info' (default), 'warn' or 'none'.
+     */
+    static setLogLevel(level: LogLevel): void;
+    /**
+     * Limits how often `DownloadProgress` and `UploadProgress` events are sent:
+     * at most one every `intervalMs`, and only once `minBytes` more bytes have
+     * been transferred. The final event of a transfer is always sent.
+     *
+     * Only available on Android.
+     * @param intervalMs - Minimum time between two events (default 100).
+     * @param minBytes - Minimum bytes transferred between two events (default 65536).
+     */
+    static setProgressThrottle(intervalMs?: number, minBytes?: number): void;
+    /**
+     * Configures the cache of directory listings and file attributes kept for
+     * each SFTP session opened afterwards. Repeated sftpLs() and sftpStat()
+     * calls on the same path are served from it; renames, mkdir, rm, rmdir,
+     * chmod and uploads through the same client invalidate the affected paths.
+     * Changes made by others are seen once entries expire. The cache is off
+     * until it is enabled here.
+     *
+     * Only available on Android.
+     * @param enabled - Whether the cache is used (default false).
+     * @param ttlMs - How long an entry stays valid (default 10000).
+     * @param maxEntries - Maximum number of directory entries cached per session (default 20000).
+     */
+    static setSftpCache(enabled: boolean, ttlMs?: number, maxEntries?: number): void;
+    /**
+     * Sets the session defaults of a host, or of every host when `host` is
+     * omitted, for connections made from now on. A host's own defaults take
+     * precedence over the ones for every host. Passing null removes them.
+     * Unknown options and algorithms are rejected.
+     *
+     * Only available on Android.
+     * @param options - The defaults, or null to remove them.
+     * @param host - The host they apply to; every host if omitted.
+     * @returns A Promise that resolves once the defaults are set.
+     */
+    static setSessionDefaults(options: SessionDefaults | null, host?: string): Promise<void>;
+    /**
+     * Configures the cache of decrypted private keys. Authenticating again with
+     * the same key and passphrase skips parsing and decrypting it, which can
+     * take hundreds of milliseconds for encrypted keys. Keys are dropped when
+     * they expire or are evicted, once no connection is authenticating with
+     * them. This leaves them to the garbage collector rather than wiping them
+     * from memory.
+     *
+     * Only available on Android.
+     * @param enabled - Whether the cache is used (default true).
+     * @param ttlMs - How long a key stays cached after it was decrypted (default 300000).
+     * @param maxEntries - Maximum number of keys cached (default 16).
+     */
+    static setIdentityCache(enabled: boolean, ttlMs?: number, maxEntries?: number): void;
+    /**
+     * Drops every cached private key.
+     *
+     * Only available on Android.
+     */
+    static clearIdentityCache(): void;
+    /**
+     * Gets the hit, miss and eviction counters of the private key cache.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the cache statistics.
+     */
+    static getIdentityCacheStats(): Promise<IdentityCacheStats>;
     /**
      * Connects to an SSH server without authentication.
      *
@@ -239,6 +691,7 @@ export default class SSHClient {
     private _listeners;
     private _counters;
     private _activeStream;
+    private _channels;
     private _handlers;
     private host;
     private port;
@@ -343,6 +796,35 @@ export default class SSHClient {
      * @returns A Promise that resolves when authentication is successful.
      */
     authenticateWithSignCallback(publicKey: string, signCallback: SignCallback, callback?: CallbackFunction<void>): Promise<void>;
+    /**
+     * Retrieves the per-phase timings (TCP, key exchange, userauth) of the last
+     * authentication attempt.
+     *
+     * Only available on Android.
+     * @returns A promise that resolves with the connection timings.
+     */
+    getConnectionTimings(): Promise<ConnectionTimings>;
+    /**
+     * Enables automatic reconnection, or disables it with `null`. When the
+     * connection is lost (for instance when the device switches networks), the
+     * client authenticates again the way it last did, with an exponential,
+     * jittered backoff between attempts. The SFTP channel is reopened. Operations
+     * issued meanwhile wait and then run on the new connection. Listings, stats
+     * and downloads interrupted by the loss are run again.
+     *
+     * 'Reconnecting' events carry the attempt number and `delayMs`; a
+     * 'Reconnected' event carries the downtime in milliseconds, `attempts` and
+     * `connectMs`. After the last failed attempt a 'Disconnected' event is sent.
+     * Shells and exec channels are not restored.
+     *
+     * The credentials are only kept while automatic reconnection is enabled, so
+     * enable it before authenticating. Disabling it drops them.
+     *
+     * Only available on Android.
+     * @param options - Backoff settings, or null to disable.
+     * @returns A promise that resolves once the setting is applied.
+     */
+    setAutoReconnect(options?: ReconnectOptions | null): Promise<void>;
     /**
      * Checks if the client is authenticated.
      * @returns true if authenticated, false otherwise.
@@ -355,6 +837,29 @@ export default class SSHClient {
      * @returns A promise that resolves with the response from the server.
      */
     execute(command: string, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Executes a command on the SSH server and reports stdout, stderr and the exit status.
+     *
+     * With `stream: true`, output is delivered as it arrives through 'ExecOutput'
+     * events (register a handler with `on('ExecOutput', ...)`; the event carries a
+     * `stream` field set to 'stdout' or 'stderr') and the promise resolves with the
+     * exit status once the command finishes. The command holds the client until
+     * it finishes; cancelExec() stops it.
+     *
+     * Only available on Android.
+     * @param command The command to execute.
+     * @param options Capture and streaming options.
+     * @param callback Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the result of the command.
+     */
+    executeWithOptions(command: string, options: ExecOptions, callback?: CallbackFunction<ExecResult>): Promise<ExecResult>;
+    /**
+     * Stops the command run by executeWithOptions(), which then resolves with
+     * `cancelled` set.
+     *
+     * Only available on Android.
+     */
+    cancelExec(): void;
     /**
      * Starts a shell session on the SSH server.
      * @param ptyType - The type of pseudo-terminal to use for the shell session.
@@ -362,6 +867,82 @@ export default class SSHClient {
      * @returns A promise that resolves with the response from the server.
      */
     startShell(ptyType: PtyType, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Starts a shell session with control over how its output is batched.
+     * 'Shell' events carry raw chunks of output, not lines.
+     * The options are only used on Android, where the promise resolves with the
+     * channel id of the shell.
+     * @param ptyType - The type of pseudo-terminal to use for the shell session.
+     * @param options - Batching of the 'Shell' events and terminal setup.
+     * @param callback - Optional callback function to handle the response.
+     * @returns A promise that resolves with the response from the server.
+     */
+    startShellWithOptions(ptyType: PtyType, options: ShellOptions, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Opens another shell on the same connection, next to the one started by
+     * startShell() and any command started by startExec(). Its 'Shell' events
+     * carry its channel id in `event.channelId` (the second handler argument).
+     *
+     * Only available on Android.
+     * @param ptyType - The type of pseudo-terminal to use for the shell session.
+     * @param options - Batching of the 'Shell' events and terminal setup.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the channel id.
+     */
+    openShell(ptyType: PtyType, options?: ShellOptions, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Changes the terminal size of a shell, for instance when the view showing
+     * it is resized. The server is told so that full-screen programs redraw for
+     * the new size.
+     *
+     * Only available on Android.
+     * @param cols - Terminal width in characters.
+     * @param rows - Terminal height in lines.
+     * @param channelId - The shell to resize; the one started by startShell() when omitted.
+     * @param callback - Optional callback function to handle completion.
+     * @param width - Terminal width in pixels, 0 when unknown.
+     * @param height - Terminal height in pixels, 0 when unknown.
+     * @returns A promise that resolves once the new size has been sent.
+     */
+    resizeShell(cols: number, rows: number, channelId?: string, callback?: CallbackFunction<void>, width?: number, height?: number): Promise<void>;
+    /**
+     * Starts a command on its own channel and resolves as soon as it runs.
+     * Output arrives as 'ExecOutput' events and the exit status as a
+     * 'ChannelClosed' event (`event.exitStatus`), both tagged with the channel id.
+     * Any number of commands and shells can run at once on one connection.
+     *
+     * Only available on Android.
+     * @param command - The command to run.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the channel id.
+     */
+    startExec(command: string, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Sends input to a channel opened with openShell() or startExec().
+     *
+     * Only available on Android.
+     * @param channelId - The channel id.
+     * @param data - The text to send.
+     * @param callback - Optional callback function to handle completion.
+     * @returns A promise that resolves once the text has been sent.
+     */
+    writeToChannel(channelId: string, data: string, callback?: CallbackFunction<void>): Promise<void>;
+    /**
+     * Closes a channel opened with openShell() or startExec().
+     *
+     * Only available on Android.
+     * @param channelId - The channel id.
+     * @param callback - Optional callback function to handle completion.
+     * @returns A promise that resolves when the channel is closed.
+     */
+    closeChannel(channelId: string, callback?: CallbackFunction<void>): Promise<void>;
+    private registerChannelListeners;
+    /**
+     * Unregisters the ChannelClosed and ExecOutput listeners once no channel of
+     * openShell() or startExec() is open or opening, and no streaming
+     * executeWithOptions() is running.
+     */
+    private releaseChannelListeners;
     /**
      * Checks if the shell is active. If the shell is already active, it returns an empty string.
      * Otherwise, it starts a new shell and returns the result.
@@ -403,6 +984,72 @@ export default class SSHClient {
      * @returns A promise that resolves to the result of the SFTP listing operation.
      */
     sftpLs(path: string, callback?: CallbackFunction<LsResult[]>): Promise<LsResult[]>;
+    /**
+     * Returns the attributes of a remote file or directory, following symbolic
+     * links.
+     *
+     * Only available on Android.
+     * @param path - The remote path.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the attributes of the path.
+     */
+    sftpStat(path: string, callback?: CallbackFunction<LsResult>): Promise<LsResult>;
+    /**
+     * Removes a file or a directory with everything below it, using several SFTP
+     * channels at once. Progress is reported by 'RmProgress' events carrying the
+     * `files` and `directories` removed so far.
+     *
+     * Only available on Android.
+     * @param path - The remote path to remove.
+     * @param options - `concurrency`: SFTP channels used at once (default 4, at most 8).
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the numbers of files and directories removed.
+     */
+    sftpRmRecursive(path: string, options?: {
+        concurrency?: number;
+    }, callback?: CallbackFunction<RmRecursiveResult>): Promise<RmRecursiveResult>;
+    /**
+     * Creates a directory and any missing parent directory, like `mkdir -p`.
+     *
+     * Only available on Android.
+     * @param path - The remote directory to create.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the number of directories created.
+     */
+    sftpMkdirs(path: string, callback?: CallbackFunction<number>): Promise<number>;
+    /**
+     * Runs several SFTP operations (rm, rmdir, mkdir, rename, chmod, stat) in a
+     * single native call. Failures do not reject the promise: each operation
+     * gets its own result, in the order given.
+     *
+     * Only available on Android.
+     * @param operations - The operations to run.
+     * @param options - Concurrency and error handling options.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with one result per operation.
+     */
+    sftpBatch(operations: SftpOperation[], options?: SftpBatchOptions, callback?: CallbackFunction<SftpOperationResult[]>): Promise<SftpOperationResult[]>;
+    /**
+     * Lists a directory in pages, for directories too large for sftpLs(). Each
+     * page is sent as an 'LsPage' event (register a handler with
+     * `on('LsPage', ...)`; the handler receives the entries, and the event's
+     * `last` field is true on the final page). Filters are applied natively
+     * before entries cross the bridge.
+     *
+     * Only available on Android.
+     * @param path - The path to list.
+     * @param options - Page size and filters.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves once the listing is complete or cancelled.
+     */
+    sftpLsStream(path: string, options?: LsStreamOptions, callback?: CallbackFunction<LsStreamResult>): Promise<LsStreamResult>;
+    /**
+     * Stops the sftpLsStream() listings requested so far, including ones still
+     * waiting behind other operations of the client, after the current entry.
+     *
+     * Only available on Android.
+     */
+    sftpCancelLs(): void;
     /**
      * Renames a file or directory on the remote server using SFTP.
      * @param oldPath The current path of the file or directory.
@@ -450,6 +1097,35 @@ export default class SSHClient {
      * @returns A Promise that resolves when the upload is complete or rejects with an error.
      */
     sftpUpload(localFilePath: string, remoteFilePath: string, callback?: CallbackFunction<void>): Promise<void>;
+    /**
+     * Uploads a file to the remote server over several SFTP channels in parallel.
+     * The data is written to a temporary file that is renamed over the
+     * destination once complete, so readers never see a partial file.
+     *
+     * Only available on Android.
+     * @param localFilePath - The path of the file on the local file system.
+     * @param remoteFilePath - The remote directory to upload into.
+     * @param options - Parallelism options.
+     * @param callback - An optional callback function to be called after the upload is complete or an error occurs.
+     * @returns A Promise that resolves with the upload result.
+     */
+    sftpUploadParallel(localFilePath: string, remoteFilePath: string, options?: ParallelUploadOptions, callback?: CallbackFunction<ParallelUploadResult>): Promise<ParallelUploadResult>;
+    /**
+     * Mirrors a directory tree between the device and the server. Only files
+     * that are missing or differ in size or modification time are transferred,
+     * several at once, and their modification time is copied so the next sync
+     * skips them. Nothing is deleted on the destination. Progress is reported by
+     * 'UploadProgress' or 'DownloadProgress' events over the bytes to send, and
+     * sftpCancelUpload() or sftpCancelDownload() stops the sync.
+     *
+     * Only available on Android.
+     * @param localPath - The local directory.
+     * @param remotePath - The remote directory.
+     * @param options - Direction, parallelism and comparison options.
+     * @param callback - An optional callback function to be called after the sync is complete or an error occurs.
+     * @returns A Promise that resolves with a summary of what was sent and skipped.
+     */
+    sftpSync(localPath: string, remotePath: string, options?: SyncOptions, callback?: CallbackFunction<SyncResult>): Promise<SyncResult>;
     /**
      * Cancels the ongoing SFTP upload.
      */
@@ -462,6 +1138,20 @@ export default class SSHClient {
      * @returns A promise that resolves with the response string when the download is complete.
      */
     sftpDownload(remoteFilePath: string, localFilePath: string, callback?: CallbackFunction<string>): Promise<string>;
+    /**
+     * Downloads a file from the remote server over several SFTP channels in parallel.
+     * Suited to large files on high-latency links. Progress events also carry
+     * `bytes`, `total` and `mbps`, and the download can be cancelled with
+     * sftpCancelDownload().
+     *
+     * Only available on Android.
+     * @param remoteFilePath - The path of the file on the remote server.
+     * @param localFilePath - The directory where the file will be saved locally.
+     * @param options - Parallelism and verification options.
+     * @param callback - An optional callback function to handle the result of the download.
+     * @returns A promise that resolves with the download result.
+     */
+    sftpDownloadParallel(remoteFilePath: string, localFilePath: string, options?: ParallelDownloadOptions, callback?: CallbackFunction<ParallelDownloadResult>): Promise<ParallelDownloadResult>;
     /**
      * Cancels the ongoing SFTP download operation.
      */
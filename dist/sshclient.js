@@ -12,6 +12,13 @@ const NATIVE_EVENT_SHELL = 'Shell';
 const NATIVE_EVENT_DOWNLOAD_PROGRESS = 'DownloadProgress';
 const NATIVE_EVENT_UPLOAD_PROGRESS = 'UploadProgress';
 const NATIVE_EVENT_SIGN_CALLBACK = 'SignCallback';
+const NATIVE_EVENT_EXEC_OUTPUT = 'ExecOutput';
+const NATIVE_EVENT_LS_PAGE = 'LsPage';
+const NATIVE_EVENT_RM_PROGRESS = 'RmProgress';
+const NATIVE_EVENT_CHANNEL_CLOSED = 'ChannelClosed';
+const NATIVE_EVENT_DISCONNECTED = 'Disconnected';
+const NATIVE_EVENT_RECONNECTING = 'Reconnecting';
+const NATIVE_EVENT_RECONNECTED = 'Reconnected';
 let RNSSHClient = NativeModules.RNSSHClient;
 let RNSSHClientEmitter = new NativeEventEmitter(RNSSHClient);
 /**
@@ -126,6 +133,12 @@ function createSSHError(error) {
     }
     return error;
 }
+/**
+ * Creates the error a method that only exists on Android fails with elsewhere.
+ */
+function androidOnlyError(method) {
+    return new Error(`${method}() is only available on Android`);
+}
 /**
  * Represents an SSH client that can connect to a remote server and perform various operations.
  * Instances of SSHClient are created using the following factory functions:
@@ -174,6 +187,207 @@ export default class SSHClient {
             });
         });
     }
+    /**
+     * Retrieves the scheduling statistics of the native executor.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the executor statistics.
+     */
+    static getExecutorStats() {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(androidOnlyError('getExecutorStats'));
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.getExecutorStats((error, stats) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve(stats);
+            });
+        });
+    }
+    /**
+     * Sets how long a sign callback may take to return its signature before
+     * authentication fails. Pending sign callbacks of a client also fail as
+     * soon as it is disconnected.
+     *
+     * Only available on Android.
+     * @param timeoutMs - Timeout in milliseconds (default 30000).
+     */
+    static setSignTimeout(timeoutMs = 30000) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setSignTimeout(timeoutMs);
+        }
+    }
+    /**
+     * Gets counters and round-trip latencies of sign callbacks.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the sign callback statistics.
+     */
+    static getSignStats() {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(androidOnlyError('getSignStats'));
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.getSignStats((error, stats) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve(stats);
+            });
+        });
+    }
+    /**
+     * Enables or disables transport sharing. When enabled, clients that
+     * authenticate to the same host and user with the same password or private
+     * key share one SSH connection; each client only opens its own channels.
+     * A shared connection no client uses any more is closed after
+     * `idleTimeoutMs`. Sign callback authentication is never shared.
+     *
+     * Only available on Android.
+     * @param enabled - Whether transports are shared.
+     * @param idleTimeoutMs - How long an unused shared transport stays open.
+     */
+    static setTransportSharing(enabled, idleTimeoutMs = 60000) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setTransportSharing(enabled, idleTimeoutMs);
+        }
+    }
+    /**
+     * Configures how dead connections are detected, for connections
+     * authenticated from now on. When nothing has been received for
+     * `keepaliveIntervalMs`, a keepalive is sent; after `keepaliveCountMax`
+     * unanswered keepalives the connection is dropped, pending operations fail
+     * and a 'Disconnected' event is sent (within `monitorIntervalMs`).
+     * An interval of 0 disables keepalives.
+     *
+     * Only available on Android.
+     * @param keepaliveIntervalMs - Idle time before a keepalive (default 15000).
+     * @param keepaliveCountMax - Unanswered keepalives before disconnecting (default 3).
+     * @param monitorIntervalMs - How often connections are checked (default 5000).
+     */
+    static setSessionHealth(keepaliveIntervalMs = 15000, keepaliveCountMax = 3, monitorIntervalMs = 5000) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setSessionHealth(keepaliveIntervalMs, keepaliveCountMax, monitorIntervalMs);
+        }
+    }
+    /**
+     * Sets the level of the native debug logs. Messages below the level are
+     * not formatted at all. 'verbose' also logs signatures and the data being
+     * signed, so only use it while debugging.
+     *
+     * Only available on Android.
+     * @param level - One of 'verbose', 'debug', 'info' (default), 'warn' or 'none'.
+     */
+    static setLogLevel(level) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setLogLevel(level);
+        }
+    }
+    /**
+     * Limits how often `DownloadProgress` and `UploadProgress` events are sent:
+     * at most one every `intervalMs`, and only once `minBytes` more bytes have
+     * been transferred. The final event of a transfer is always sent.
+     *
+     * Only available on Android.
+     * @param intervalMs - Minimum time between two events (default 100).
+     * @param minBytes - Minimum bytes transferred between two events (default 65536).
+     */
+    static setProgressThrottle(intervalMs = 100, minBytes = 65536) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setProgressThrottle(intervalMs, minBytes);
+        }
+    }
+    /**
+     * Configures the cache of directory listings and file attributes kept for
+     * each SFTP session opened afterwards. Repeated sftpLs() and sftpStat()
+     * calls on the same path are served from it; renames, mkdir, rm, rmdir,
+     * chmod and uploads through the same client invalidate the affected paths.
+     * Changes made by others are seen once entries expire. The cache is off
+     * until it is enabled here.
+     *
+     * Only available on Android.
+     * @param enabled - Whether the cache is used (default false).
+     * @param ttlMs - How long an entry stays valid (default 10000).
+     * @param maxEntries - Maximum number of directory entries cached per session (default 20000).
+     */
+    static setSftpCache(enabled, ttlMs = 10000, maxEntries = 20000) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setSftpCache(enabled, ttlMs, maxEntries);
+        }
+    }
+    /**
+     * Sets the session defaults of a host, or of every host when `host` is
+     * omitted, for connections made from now on. A host's own defaults take
+     * precedence over the ones for every host. Passing null removes them.
+     * Unknown options and algorithms are rejected.
+     *
+     * Only available on Android.
+     * @param options - The defaults, or null to remove them.
+     * @param host - The host they apply to; every host if omitted.
+     * @returns A Promise that resolves once the defaults are set.
+     */
+    static setSessionDefaults(options, host) {
+        return new Promise((resolve, reject) => {
+            if (Platform.OS !== 'android') {
+                return resolve();
+            }
+            RNSSHClient.setSessionDefaults(host !== null && host !== void 0 ? host : null, options, (error) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve();
+            });
+        });
+    }
+    /**
+     * Configures the cache of decrypted private keys. Authenticating again with
+     * the same key and passphrase skips parsing and decrypting it, which can
+     * take hundreds of milliseconds for encrypted keys. Keys are dropped when
+     * they expire or are evicted, once no connection is authenticating with
+     * them. This leaves them to the garbage collector rather than wiping them
+     * from memory.
+     *
+     * Only available on Android.
+     * @param enabled - Whether the cache is used (default true).
+     * @param ttlMs - How long a key stays cached after it was decrypted (default 300000).
+     * @param maxEntries - Maximum number of keys cached (default 16).
+     */
+    static setIdentityCache(enabled, ttlMs = 300000, maxEntries = 16) {
+        if (Platform.OS === 'android') {
+            RNSSHClient.setIdentityCache(enabled, ttlMs, maxEntries);
+        }
+    }
+    /**
+     * Drops every cached private key.
+     *
+     * Only available on Android.
+     */
+    static clearIdentityCache() {
+        if (Platform.OS === 'android') {
+            RNSSHClient.clearIdentityCache();
+        }
+    }
+    /**
+     * Gets the hit, miss and eviction counters of the private key cache.
+     *
+     * Only available on Android.
+     * @returns A Promise that resolves to the cache statistics.
+     */
+    static getIdentityCacheStats() {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(androidOnlyError('getIdentityCacheStats'));
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.getIdentityCacheStats((error, stats) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve(stats);
+            });
+        });
+    }
     /**
      * Connects to an SSH server without authentication.
      *
@@ -280,13 +494,22 @@ export default class SSHClient {
     constructor(host, port, username, passwordOrKeyOrCallback, callback) {
         this._key = SSHClient.getRandomClientKey();
         this._listeners = {};
-        this._counters = { download: 0, upload: 0 };
+        this._counters = { download: 0, upload: 0, exec: 0, opening: 0, ls: 0 };
         this._activeStream = { sftp: false, shell: false };
+        this._channels = new Set();
         this._handlers = {};
         this.host = host;
         this.port = port;
         this.username = username;
         this._isAuthenticated = false;
+        if (Platform.OS === 'android') {
+            this._listeners[NATIVE_EVENT_DISCONNECTED] = RNSSHClientEmitter.addListener(NATIVE_EVENT_DISCONNECTED, (event) => {
+                if (event.key === this._key) {
+                    this._isAuthenticated = false;
+                    this.handleEvent(event);
+                }
+            });
+        }
         // Handle both new and legacy constructor signatures
         if (typeof passwordOrKeyOrCallback === 'function') {
             // New signature: connect only
@@ -505,6 +728,69 @@ export default class SSHClient {
             });
         });
     }
+    /**
+     * Retrieves the per-phase timings (TCP, key exchange, userauth) of the last
+     * authentication attempt.
+     *
+     * Only available on Android.
+     * @returns A promise that resolves with the connection timings.
+     */
+    getConnectionTimings() {
+        return new Promise((resolve, reject) => {
+            RNSSHClient.getConnectionTimings(this._key, (error, timings) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve(timings);
+            });
+        });
+    }
+    /**
+     * Enables automatic reconnection, or disables it with `null`. When the
+     * connection is lost (for instance when the device switches networks), the
+     * client authenticates again the way it last did, with an exponential,
+     * jittered backoff between attempts. The SFTP channel is reopened. Operations
+     * issued meanwhile wait and then run on the new connection. Listings, stats
+     * and downloads interrupted by the loss are run again.
+     *
+     * 'Reconnecting' events carry the attempt number and `delayMs`; a
+     * 'Reconnected' event carries the downtime in milliseconds, `attempts` and
+     * `connectMs`. After the last failed attempt a 'Disconnected' event is sent.
+     * Shells and exec channels are not restored.
+     *
+     * The credentials are only kept while automatic reconnection is enabled, so
+     * enable it before authenticating. Disabling it drops them.
+     *
+     * Only available on Android.
+     * @param options - Backoff settings, or null to disable.
+     * @returns A promise that resolves once the setting is applied.
+     */
+    setAutoReconnect(options = {}) {
+        if (Platform.OS !== 'android') {
+            return Promise.resolve();
+        }
+        if (options && !this._listeners[NATIVE_EVENT_RECONNECTED]) {
+            this.registerNativeListener(NATIVE_EVENT_RECONNECTING);
+            this._listeners[NATIVE_EVENT_RECONNECTED] = RNSSHClientEmitter.addListener(NATIVE_EVENT_RECONNECTED, (event) => {
+                if (event.key === this._key) {
+                    this._isAuthenticated = true;
+                    this.handleEvent(event);
+                }
+            });
+        }
+        else if (!options) {
+            this.unregisterNativeListener(NATIVE_EVENT_RECONNECTING);
+            this.unregisterNativeListener(NATIVE_EVENT_RECONNECTED);
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.setAutoReconnect(options, this._key, (error) => {
+                if (error) {
+                    return reject(error);
+                }
+                resolve();
+            });
+        });
+    }
     /**
      * Checks if the client is authenticated.
      * @returns true if authenticated, false otherwise.
@@ -537,6 +823,61 @@ export default class SSHClient {
             });
         });
     }
+    /**
+     * Executes a command on the SSH server and reports stdout, stderr and the exit status.
+     *
+     * With `stream: true`, output is delivered as it arrives through 'ExecOutput'
+     * events (register a handler with `on('ExecOutput', ...)`; the event carries a
+     * `stream` field set to 'stdout' or 'stderr') and the promise resolves with the
+     * exit status once the command finishes. The command holds the client until
+     * it finishes; cancelExec() stops it.
+     *
+     * Only available on Android.
+     * @param command The command to execute.
+     * @param options Capture and streaming options.
+     * @param callback Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the result of the command.
+     */
+    executeWithOptions(command, options, callback) {
+        if (!this._isAuthenticated) {
+            const error = new Error('Client is not authenticated');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        if (options.stream) {
+            if (!this._listeners[NATIVE_EVENT_EXEC_OUTPUT]) {
+                this.registerNativeListener(NATIVE_EVENT_EXEC_OUTPUT);
+            }
+            ++this._counters.exec;
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.executeWithOptions(command, options, this._key, (error, result) => {
+                if (options.stream) {
+                    --this._counters.exec;
+                    this.releaseChannelListeners();
+                }
+                if (callback) {
+                    callback(error, result);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(result);
+            });
+        });
+    }
+    /**
+     * Stops the command run by executeWithOptions(), which then resolves with
+     * `cancelled` set.
+     *
+     * Only available on Android.
+     */
+    cancelExec() {
+        if (Platform.OS === 'android') {
+            RNSSHClient.cancelExec(this._key);
+        }
+    }
     /**
      * Starts a shell session on the SSH server.
      * @param ptyType - The type of pseudo-terminal to use for the shell session.
@@ -544,12 +885,27 @@ export default class SSHClient {
      * @returns A promise that resolves with the response from the server.
      */
     startShell(ptyType, callback) {
+        return this.startShellWithOptions(ptyType, {}, callback);
+    }
+    /**
+     * Starts a shell session with control over how its output is batched.
+     * 'Shell' events carry raw chunks of output, not lines.
+     * The options are only used on Android, where the promise resolves with the
+     * channel id of the shell.
+     * @param ptyType - The type of pseudo-terminal to use for the shell session.
+     * @param options - Batching of the 'Shell' events and terminal setup.
+     * @param callback - Optional callback function to handle the response.
+     * @returns A promise that resolves with the response from the server.
+     */
+    startShellWithOptions(ptyType, options, callback) {
         if (this._activeStream.shell) {
             return Promise.resolve('');
         }
         return new Promise((resolve, reject) => {
-            this.registerNativeListener(NATIVE_EVENT_SHELL);
-            RNSSHClient.startShell(this._key, ptyType, (error, response) => {
+            if (!this._listeners[NATIVE_EVENT_SHELL]) {
+                this.registerNativeListener(NATIVE_EVENT_SHELL);
+            }
+            const done = (error, response) => {
                 if (callback) {
                     callback(error, response);
                 }
@@ -558,9 +914,209 @@ export default class SSHClient {
                 }
                 this._activeStream.shell = true;
                 resolve(response);
+            };
+            if (Platform.OS === 'android') {
+                RNSSHClient.startShellWithOptions(ptyType, options, this._key, done);
+            }
+            else {
+                RNSSHClient.startShell(this._key, ptyType, done);
+            }
+        });
+    }
+    /**
+     * Opens another shell on the same connection, next to the one started by
+     * startShell() and any command started by startExec(). Its 'Shell' events
+     * carry its channel id in `event.channelId` (the second handler argument).
+     *
+     * Only available on Android.
+     * @param ptyType - The type of pseudo-terminal to use for the shell session.
+     * @param options - Batching of the 'Shell' events and terminal setup.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the channel id.
+     */
+    openShell(ptyType, options = {}, callback) {
+        if (Platform.OS !== 'android') {
+            const error = androidOnlyError('openShell');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        return new Promise((resolve, reject) => {
+            this.registerChannelListeners(NATIVE_EVENT_SHELL);
+            ++this._counters.opening;
+            RNSSHClient.openShell(ptyType, options, this._key, (error, channelId) => {
+                --this._counters.opening;
+                if (!error) {
+                    this._channels.add(channelId);
+                }
+                this.releaseChannelListeners();
+                if (callback) {
+                    callback(error, channelId);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(channelId);
             });
         });
     }
+    /**
+     * Changes the terminal size of a shell, for instance when the view showing
+     * it is resized. The server is told so that full-screen programs redraw for
+     * the new size.
+     *
+     * Only available on Android.
+     * @param cols - Terminal width in characters.
+     * @param rows - Terminal height in lines.
+     * @param channelId - The shell to resize; the one started by startShell() when omitted.
+     * @param callback - Optional callback function to handle completion.
+     * @param width - Terminal width in pixels, 0 when unknown.
+     * @param height - Terminal height in pixels, 0 when unknown.
+     * @returns A promise that resolves once the new size has been sent.
+     */
+    resizeShell(cols, rows, channelId, callback, width, height) {
+        if (Platform.OS !== 'android') {
+            const error = androidOnlyError('resizeShell');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.resizeShell(channelId !== null && channelId !== void 0 ? channelId : null, cols, rows, width !== null && width !== void 0 ? width : 0, height !== null && height !== void 0 ? height : 0, this._key, (error) => {
+                if (callback) {
+                    callback(error);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve();
+            });
+        });
+    }
+    /**
+     * Starts a command on its own channel and resolves as soon as it runs.
+     * Output arrives as 'ExecOutput' events and the exit status as a
+     * 'ChannelClosed' event (`event.exitStatus`), both tagged with the channel id.
+     * Any number of commands and shells can run at once on one connection.
+     *
+     * Only available on Android.
+     * @param command - The command to run.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the channel id.
+     */
+    startExec(command, callback) {
+        if (Platform.OS !== 'android') {
+            const error = androidOnlyError('startExec');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        return new Promise((resolve, reject) => {
+            this.registerChannelListeners(NATIVE_EVENT_EXEC_OUTPUT);
+            ++this._counters.opening;
+            RNSSHClient.startExec(command, this._key, (error, channelId) => {
+                --this._counters.opening;
+                if (!error) {
+                    this._channels.add(channelId);
+                }
+                this.releaseChannelListeners();
+                if (callback) {
+                    callback(error, channelId);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(channelId);
+            });
+        });
+    }
+    /**
+     * Sends input to a channel opened with openShell() or startExec().
+     *
+     * Only available on Android.
+     * @param channelId - The channel id.
+     * @param data - The text to send.
+     * @param callback - Optional callback function to handle completion.
+     * @returns A promise that resolves once the text has been sent.
+     */
+    writeToChannel(channelId, data, callback) {
+        if (Platform.OS !== 'android') {
+            const error = androidOnlyError('writeToChannel');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.writeToChannel(channelId, data, this._key, (error) => {
+                if (callback) {
+                    callback(error);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve();
+            });
+        });
+    }
+    /**
+     * Closes a channel opened with openShell() or startExec().
+     *
+     * Only available on Android.
+     * @param channelId - The channel id.
+     * @param callback - Optional callback function to handle completion.
+     * @returns A promise that resolves when the channel is closed.
+     */
+    closeChannel(channelId, callback) {
+        if (Platform.OS !== 'android') {
+            const error = androidOnlyError('closeChannel');
+            if (callback)
+                callback(error);
+            return Promise.reject(error);
+        }
+        return new Promise((resolve, reject) => {
+            RNSSHClient.closeChannel(channelId, this._key, (error) => {
+                this._channels.delete(channelId);
+                if (callback) {
+                    callback(error);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve();
+            });
+        });
+    }
+    registerChannelListeners(eventName) {
+        if (!this._listeners[eventName]) {
+            this.registerNativeListener(eventName);
+        }
+        if (!this._listeners[NATIVE_EVENT_CHANNEL_CLOSED]) {
+            this._listeners[NATIVE_EVENT_CHANNEL_CLOSED] = RNSSHClientEmitter.addListener(NATIVE_EVENT_CHANNEL_CLOSED, (event) => {
+                if (event.key !== this._key) {
+                    return;
+                }
+                this.handleEvent(event);
+                if (event.channelId) {
+                    this._channels.delete(event.channelId);
+                }
+                this.releaseChannelListeners();
+            });
+        }
+    }
+    /**
+     * Unregisters the ChannelClosed and ExecOutput listeners once no channel of
+     * openShell() or startExec() is open or opening, and no streaming
+     * executeWithOptions() is running.
+     */
+    releaseChannelListeners() {
+        if (this._channels.size > 0 || this._counters.opening > 0) {
+            return;
+        }
+        this.unregisterNativeListener(NATIVE_EVENT_CHANNEL_CLOSED);
+        if (this._counters.exec === 0) {
+            this.unregisterNativeListener(NATIVE_EVENT_EXEC_OUTPUT);
+        }
+    }
     /**
      * Checks if the shell is active. If the shell is already active, it returns an empty string.
      * Otherwise, it starts a new shell and returns the result.
@@ -606,7 +1162,9 @@ export default class SSHClient {
      */
     closeShell(callback) {
         return new Promise((resolve, reject) => {
-            this.unregisterNativeListener(NATIVE_EVENT_SHELL);
+            if (this._channels.size === 0) {
+                this.unregisterNativeListener(NATIVE_EVENT_SHELL);
+            }
             // Try new callback-based method first, fallback to old method
             try {
                 RNSSHClient.closeShell(this._key, (error) => {
@@ -687,8 +1245,12 @@ export default class SSHClient {
     sftpLs(path, callback) {
         return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
             RNSSHClient.sftpLs(path, this._key, (error, _response) => {
+                // Android sends objects, iOS sends JSON strings.
                 const response = _response
                     ? _response.map((p) => {
+                        if (typeof p !== 'string') {
+                            return p;
+                        }
                         // eslint-disable-next-line no-control-regex -- Control characters are removed from the response, because they can make JSON.parse fail
                         return JSON.parse(p.replace(/[\u0000-\u001F]/g, ''));
                     })
@@ -703,6 +1265,142 @@ export default class SSHClient {
             });
         }));
     }
+    /**
+     * Returns the attributes of a remote file or directory, following symbolic
+     * links.
+     *
+     * Only available on Android.
+     * @param path - The remote path.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the attributes of the path.
+     */
+    sftpStat(path, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            RNSSHClient.sftpStat(path, this._key, (error, response) => {
+                if (callback) {
+                    callback(error, response);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(response);
+            });
+        }));
+    }
+    /**
+     * Removes a file or a directory with everything below it, using several SFTP
+     * channels at once. Progress is reported by 'RmProgress' events carrying the
+     * `files` and `directories` removed so far.
+     *
+     * Only available on Android.
+     * @param path - The remote path to remove.
+     * @param options - `concurrency`: SFTP channels used at once (default 4, at most 8).
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the numbers of files and directories removed.
+     */
+    sftpRmRecursive(path, options = {}, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            if (!this._listeners[NATIVE_EVENT_RM_PROGRESS]) {
+                this.registerNativeListener(NATIVE_EVENT_RM_PROGRESS);
+            }
+            RNSSHClient.sftpRmRecursive(path, options, this._key, (error, result) => {
+                if (callback) {
+                    callback(error, result);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(result);
+            });
+        }));
+    }
+    /**
+     * Creates a directory and any missing parent directory, like `mkdir -p`.
+     *
+     * Only available on Android.
+     * @param path - The remote directory to create.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with the number of directories created.
+     */
+    sftpMkdirs(path, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            RNSSHClient.sftpMkdirs(path, this._key, (error, created) => {
+                if (callback) {
+                    callback(error, created);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(created);
+            });
+        }));
+    }
+    /**
+     * Runs several SFTP operations (rm, rmdir, mkdir, rename, chmod, stat) in a
+     * single native call. Failures do not reject the promise: each operation
+     * gets its own result, in the order given.
+     *
+     * Only available on Android.
+     * @param operations - The operations to run.
+     * @param options - Concurrency and error handling options.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves with one result per operation.
+     */
+    sftpBatch(operations, options = {}, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            RNSSHClient.sftpBatch(operations, options, this._key, (error, results) => {
+                if (callback) {
+                    callback(error, results);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(results);
+            });
+        }));
+    }
+    /**
+     * Lists a directory in pages, for directories too large for sftpLs(). Each
+     * page is sent as an 'LsPage' event (register a handler with
+     * `on('LsPage', ...)`; the handler receives the entries, and the event's
+     * `last` field is true on the final page). Filters are applied natively
+     * before entries cross the bridge.
+     *
+     * Only available on Android.
+     * @param path - The path to list.
+     * @param options - Page size and filters.
+     * @param callback - Optional callback function to handle the result asynchronously.
+     * @returns A promise that resolves once the listing is complete or cancelled.
+     */
+    sftpLsStream(path, options = {}, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            if (!this._listeners[NATIVE_EVENT_LS_PAGE]) {
+                this.registerNativeListener(NATIVE_EVENT_LS_PAGE);
+            }
+            ++this._counters.ls;
+            RNSSHClient.sftpLsStream(path, options, this._key, (error, result) => {
+                if (--this._counters.ls === 0) {
+                    this.unregisterNativeListener(NATIVE_EVENT_LS_PAGE);
+                }
+                if (callback) {
+                    callback(error, result);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(result);
+            });
+        }));
+    }
+    /**
+     * Stops the sftpLsStream() listings requested so far, including ones still
+     * waiting behind other operations of the client, after the current entry.
+     *
+     * Only available on Android.
+     */
+    sftpCancelLs() {
+        RNSSHClient.sftpCancelLs(this._key);
+    }
     /**
      * Renames a file or directory on the remote server using SFTP.
      * @param oldPath The current path of the file or directory.
@@ -824,6 +1522,64 @@ export default class SSHClient {
             });
         }));
     }
+    /**
+     * Uploads a file to the remote server over several SFTP channels in parallel.
+     * The data is written to a temporary file that is renamed over the
+     * destination once complete, so readers never see a partial file.
+     *
+     * Only available on Android.
+     * @param localFilePath - The path of the file on the local file system.
+     * @param remoteFilePath - The remote directory to upload into.
+     * @param options - Parallelism options.
+     * @param callback - An optional callback function to be called after the upload is complete or an error occurs.
+     * @returns A Promise that resolves with the upload result.
+     */
+    sftpUploadParallel(localFilePath, remoteFilePath, options = {}, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            ++this._counters.upload;
+            RNSSHClient.sftpUploadParallel(localFilePath, remoteFilePath, options, this._key, (error, response) => {
+                --this._counters.upload;
+                if (callback) {
+                    callback(error, response);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(response);
+            });
+        }));
+    }
+    /**
+     * Mirrors a directory tree between the device and the server. Only files
+     * that are missing or differ in size or modification time are transferred,
+     * several at once, and their modification time is copied so the next sync
+     * skips them. Nothing is deleted on the destination. Progress is reported by
+     * 'UploadProgress' or 'DownloadProgress' events over the bytes to send, and
+     * sftpCancelUpload() or sftpCancelDownload() stops the sync.
+     *
+     * Only available on Android.
+     * @param localPath - The local directory.
+     * @param remotePath - The remote directory.
+     * @param options - Direction, parallelism and comparison options.
+     * @param callback - An optional callback function to be called after the sync is complete or an error occurs.
+     * @returns A Promise that resolves with a summary of what was sent and skipped.
+     */
+    sftpSync(localPath, remotePath, options = {}, callback) {
+        const counter = options.direction === 'download' ? 'download' : 'upload';
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            ++this._counters[counter];
+            RNSSHClient.sftpSync(localPath, remotePath, options, this._key, (error, response) => {
+                --this._counters[counter];
+                if (callback) {
+                    callback(error, response);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(response);
+            });
+        }));
+    }
     /**
      * Cancels the ongoing SFTP upload.
      */
@@ -854,6 +1610,34 @@ export default class SSHClient {
             });
         }));
     }
+    /**
+     * Downloads a file from the remote server over several SFTP channels in parallel.
+     * Suited to large files on high-latency links. Progress events also carry
+     * `bytes`, `total` and `mbps`, and the download can be cancelled with
+     * sftpCancelDownload().
+     *
+     * Only available on Android.
+     * @param remoteFilePath - The path of the file on the remote server.
+     * @param localFilePath - The directory where the file will be saved locally.
+     * @param options - Parallelism and verification options.
+     * @param callback - An optional callback function to handle the result of the download.
+     * @returns A promise that resolves with the download result.
+     */
+    sftpDownloadParallel(remoteFilePath, localFilePath, options = {}, callback) {
+        return this.checkSFTP(callback).then(() => new Promise((resolve, reject) => {
+            ++this._counters.download;
+            RNSSHClient.sftpDownloadParallel(remoteFilePath, localFilePath, options, this._key, (error, response) => {
+                --this._counters.download;
+                if (callback) {
+                    callback(error, response);
+                }
+                if (error) {
+                    return reject(error);
+                }
+                resolve(response);
+            });
+        }));
+    }
     /**
      * Cancels the ongoing SFTP download operation.
      */
@@ -920,6 +1704,9 @@ export default class SSHClient {
                 if (this._activeStream.sftp) {
                     yield this.disconnectSFTP();
                 }
+                this.unregisterNativeListener(NATIVE_EVENT_DISCONNECTED);
+                this.unregisterNativeListener(NATIVE_EVENT_RECONNECTING);
+                this.unregisterNativeListener(NATIVE_EVENT_RECONNECTED);
                 // Disconnect main session
                 try {
                     RNSSHClient.disconnect(this._key, (error) => {